@@ -0,0 +1,44 @@
+package engine.bench;
+
+import java.util.Arrays;
+
+/**
+ * Timing loop shared by the benchmark mains in this package. Each case runs a few
+ * warm-up rounds so the JIT settles, then reports the median of the measured rounds.
+ * Case results are summed into a sink so the work cannot be optimized away.
+ *
+ * Rounds are set with {@code -Dvoxel.benchWarmup} and {@code -Dvoxel.benchRounds}.
+ */
+final class Bench {
+    private static final int WARMUP_ROUNDS = Integer.getInteger("voxel.benchWarmup", 5);
+    private static final int ROUNDS = Math.max(1, Integer.getInteger("voxel.benchRounds", 10));
+
+    static volatile long sink;
+
+    interface Case {
+        long run() throws Exception;
+    }
+
+    private Bench() {
+    }
+
+    /** Times {@code body}, which performs {@code ops} operations per call; returns the median nanoseconds per operation. */
+    static double measure(String name, long ops, Case body) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) sink += body.run();
+        long[] times = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += body.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        double perOp = times[ROUNDS / 2] / (double) ops;
+        System.out.println(String.format("%-44s %12.1f ns/op %14.0f ops/s", name, perOp, 1e9 / perOp));
+        return perOp;
+    }
+
+    static void header(String title) {
+        System.out.println();
+        System.out.println("== " + title);
+    }
+}
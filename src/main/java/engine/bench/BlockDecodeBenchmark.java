@@ -0,0 +1,136 @@
+package engine.bench;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import engine.common.block.BlockRegistry;
+import engine.common.block.Material;
+import engine.common.world.Chunk;
+import engine.common.world.DefaultChunkGenerator;
+
+/**
+ * Block id decode on the {@link Chunk#load} and {@link Chunk#deserializeBlocks} paths,
+ * against the lookups they replaced: a linear scan of {@code Material.values()} per
+ * byte and a {@code HashMap<Material, BlockInfo>} per property read.
+ *
+ * Usage: {@code BlockDecodeBenchmark [chunks]}
+ */
+public class BlockDecodeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        DefaultChunkGenerator generator = new DefaultChunkGenerator(1, 128);
+        Chunk[] chunks = new Chunk[count];
+        byte[][] sections = new byte[count][];
+        byte[][] packets = new byte[count][];
+        long voxels = 0;
+        for (int i = 0; i < count; i++) {
+            chunks[i] = Chunk.createGenerated(i, 0, 0);
+            generator.populate(chunks[i]);
+            sections[i] = chunks[i].encodeSections();
+            packets[i] = chunks[i].serializeBlocks();
+            voxels += sections[i].length - 4;
+        }
+        final long ids = voxels;
+        BlockRegistry registry = BlockRegistry.createDefault();
+        Map<Material, BlockRegistry.BlockInfo> byMaterial = new HashMap<>();
+        for (BlockRegistry.BlockInfo info : registry.getAllBlockInfos()) byMaterial.put(info.id, info);
+
+        Bench.header("Id decode, " + count + " chunks (" + ids + " ids)");
+        Bench.measure("Material linear scan", ids, () -> {
+            long sum = 0;
+            for (byte[] data : sections) {
+                for (int i = 4; i < data.length; i++) sum += scan(data[i]).ordinal();
+            }
+            return sum;
+        });
+        Bench.measure("Material.fromId", ids, () -> {
+            long sum = 0;
+            for (byte[] data : sections) {
+                for (int i = 4; i < data.length; i++) sum += Material.fromId(data[i]).ordinal();
+            }
+            return sum;
+        });
+
+        Bench.header("Solid flag per voxel");
+        Bench.measure("HashMap<Material, BlockInfo>", ids, () -> {
+            long solid = 0;
+            for (byte[] data : sections) {
+                for (int i = 4; i < data.length; i++) if (byMaterial.get(Material.fromId(data[i])).solid) solid++;
+            }
+            return solid;
+        });
+        Bench.measure("BlockRegistry.isSolid(id)", ids, () -> {
+            long solid = 0;
+            for (byte[] data : sections) {
+                for (int i = 4; i < data.length; i++) if (registry.isSolid(data[i])) solid++;
+            }
+            return solid;
+        });
+
+        File dir = Files.createTempDirectory("voxel-bench").toFile();
+        try {
+            File[] legacy = new File[count];
+            File[] current = new File[count];
+            for (int i = 0; i < count; i++) {
+                legacy[i] = new File(dir, "legacy_" + i + ".dat");
+                writeLegacy(chunks[i], legacy[i]);
+                current[i] = new File(dir, "chunk_" + i + ".dat");
+                chunks[i].save(current[i]);
+            }
+            Bench.header("Whole chunks");
+            Bench.measure("Chunk.load, legacy per-voxel file", count, () -> {
+                long sum = 0;
+                for (File file : legacy) sum += Chunk.load(file).getVersion();
+                return sum;
+            });
+            Bench.measure("Chunk.load, section file", count, () -> {
+                long sum = 0;
+                for (File file : current) sum += Chunk.load(file).getVersion();
+                return sum;
+            });
+            Bench.measure("Chunk.deserializeBlocks", count, () -> {
+                long sum = 0;
+                for (byte[] packet : packets) {
+                    Chunk chunk = Chunk.createGenerated(0, 0, 0);
+                    chunk.deserializeBlocks(packet);
+                    sum += chunk.getVersion();
+                }
+                return sum;
+            });
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) for (File file : files) file.delete();
+            dir.delete();
+        }
+    }
+
+    // How Material.fromId resolved ids before the dense table
+    private static Material scan(int id) {
+        for (Material m : Material.values()) {
+            if (m.getId() == id) return m;
+        }
+        return Material.AIR;
+    }
+
+    // The pre-section file layout: header, then one id per voxel in x, y, z order
+    private static void writeLegacy(Chunk chunk, File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(chunk.getX());
+            out.writeInt(chunk.getY());
+            out.writeInt(chunk.getZ());
+            byte[] ids = new byte[Chunk.SIZE * Chunk.HEIGHT * Chunk.SIZE];
+            int i = 0;
+            for (int x = 0; x < Chunk.SIZE; x++)
+                for (int y = 0; y < Chunk.HEIGHT; y++)
+                    for (int z = 0; z < Chunk.SIZE; z++)
+                        ids[i++] = (byte) chunk.getMaterial(x, y, z).getId();
+            out.write(ids);
+        }
+    }
+}
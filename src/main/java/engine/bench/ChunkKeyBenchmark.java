@@ -0,0 +1,153 @@
+package engine.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import engine.common.util.Long2ObjectHashMap;
+import engine.common.world.ChunkPos;
+
+/**
+ * Chunk lookups keyed by {@code "x,y,z"} strings, as the world map was, against
+ * {@link ChunkPos#pack} keys in a {@link Long2ObjectHashMap}. Reports lookup time and the
+ * bytes each lookup allocates on one thread, then aggregate lookups per second with
+ * several reader threads while one writer keeps loading and unloading chunks at the
+ * edge of the area, the way the tick thread does while network threads read.
+ *
+ * Allocation needs the HotSpot {@code com.sun.management.ThreadMXBean}; it reads n/a
+ * elsewhere.
+ *
+ * Usage: {@code ChunkKeyBenchmark [radius] [secondsPerRun] [maxThreads]}
+ */
+public class ChunkKeyBenchmark {
+    private static final int LOOKUPS = 1 << 16;
+
+    private interface ChunkMap {
+        Object get(int x, int y, int z);
+        void put(int x, int y, int z, Object value);
+        void remove(int x, int y, int z);
+    }
+
+    private static final class StringKeys implements ChunkMap {
+        final Map<String, Object> map;
+        StringKeys(Map<String, Object> map) { this.map = map; }
+        public Object get(int x, int y, int z) { return map.get(x + "," + y + "," + z); }
+        public void put(int x, int y, int z, Object value) { map.put(x + "," + y + "," + z, value); }
+        public void remove(int x, int y, int z) { map.remove(x + "," + y + "," + z); }
+    }
+
+    private static final class PackedKeys implements ChunkMap {
+        final Long2ObjectHashMap<Object> map = new Long2ObjectHashMap<>(1024);
+        public Object get(int x, int y, int z) { return map.get(ChunkPos.pack(x, y, z)); }
+        public void put(int x, int y, int z, Object value) { map.put(ChunkPos.pack(x, y, z), value); }
+        public void remove(int x, int y, int z) { map.remove(ChunkPos.pack(x, y, z)); }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int radius = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int side = 2 * radius + 1;
+
+        // Lookup order is shuffled so neither map gets a sequential access pattern for free
+        Random random = new Random(1);
+        int[] xs = new int[LOOKUPS], zs = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            xs[i] = random.nextInt(side) - radius;
+            zs[i] = random.nextInt(side) - radius;
+        }
+
+        String[] names = { "String keys, HashMap", "String keys, ConcurrentHashMap", "Packed long keys, Long2ObjectHashMap" };
+        ChunkMap[] maps = { new StringKeys(new HashMap<>()), new StringKeys(new ConcurrentHashMap<>()), new PackedKeys() };
+        for (ChunkMap map : maps) fill(map, radius);
+
+        Bench.header(side * side + " chunks, " + LOOKUPS + " lookups per round, one thread");
+        for (int m = 0; m < maps.length; m++) {
+            ChunkMap map = maps[m];
+            Bench.measure(names[m], LOOKUPS, () -> lookups(map, xs, zs));
+            long allocated = allocatedBytes();
+            Bench.sink += lookups(map, xs, zs);
+            long bytes = allocatedBytes() - allocated;
+            System.out.println(String.format("%-44s %12s", "  allocated per lookup",
+                allocated < 0 ? "n/a" : String.format("%.1f B", bytes / (double) LOOKUPS)));
+        }
+
+        // HashMap is not safe with a concurrent writer, so only the thread-safe maps run here
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) threadCounts.add(threads);
+        threadCounts.add(maxThreads);
+        for (int threads : threadCounts) {
+            Bench.header(threads + " reader thread" + (threads == 1 ? "" : "s") + " and one writer, " + seconds + " s");
+            for (int m = 1; m < maps.length; m++) {
+                long[] result = concurrent(maps[m], radius, xs, zs, threads, seconds * 1000L);
+                System.out.println(String.format("%-44s %12.0f lookups/s %10.0f writes/s", names[m],
+                    result[0] * 1000.0 / (seconds * 1000L), result[1] * 1000.0 / (seconds * 1000L)));
+            }
+        }
+    }
+
+    private static void fill(ChunkMap map, int radius) {
+        for (int x = -radius; x <= radius; x++)
+            for (int z = -radius; z <= radius; z++) map.put(x, 0, z, new Object());
+    }
+
+    private static long lookups(ChunkMap map, int[] xs, int[] zs) {
+        long found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (map.get(xs[i], 0, zs[i]) != null) found++;
+        }
+        return found;
+    }
+
+    // Readers look up the area while the writer loads and unloads the ring just outside it
+    private static long[] concurrent(ChunkMap map, int radius, int[] xs, int[] zs, int threads, long millis) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong(), writes = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads + 1);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 7919;
+            new Thread(() -> {
+                long count = 0, found = 0;
+                for (int i = offset; running.get(); i++) {
+                    int j = i & (LOOKUPS - 1);
+                    if (map.get(xs[j], 0, zs[j]) != null) found++;
+                    count++;
+                }
+                Bench.sink += found;
+                reads.addAndGet(count);
+                done.countDown();
+            }, "Bench-Reader-" + t).start();
+        }
+        new Thread(() -> {
+            long count = 0;
+            int edge = radius + 1;
+            for (int i = 0; running.get(); i++) {
+                int x = (i % (2 * edge + 1)) - edge;
+                map.put(x, 0, edge, new Object());
+                map.remove(x, 0, edge);
+                count += 2;
+            }
+            writes.addAndGet(count);
+            done.countDown();
+        }, "Bench-Writer").start();
+        Thread.sleep(millis);
+        running.set(false);
+        done.await();
+        return new long[] { reads.get(), writes.get() };
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+        if (!hotspot.isThreadAllocatedMemorySupported()) return -1;
+        return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,133 @@
+package engine.bench;
+
+import java.util.Random;
+
+import engine.common.block.Block;
+import engine.common.block.Material;
+import engine.common.world.Chunk;
+
+/**
+ * Heap per chunk for the original {@code Block[16][128][16]} layout against the
+ * {@link engine.common.world.PalettedStorage} sections {@link Chunk} uses now, for air,
+ * uniform, layered and noisy chunks. Each figure is the heap growth from holding many
+ * chunks of one kind, divided by their number, next to {@link Chunk#estimateMemoryUsage()}.
+ * Paletted chunks are small enough that they are held {@value #PALETTED_FACTOR} times as
+ * many, to stay well clear of measurement noise.
+ *
+ * The original layout is measured twice: with a new block object per voxel, as it was
+ * filled, and with the shared per-material instances {@link Block#of} hands out now,
+ * which leaves only the arrays.
+ *
+ * Usage: {@code ChunkMemoryBenchmark [chunks]}
+ */
+public class ChunkMemoryBenchmark {
+    private static final Material[] MATERIALS = Material.values();
+    private static final int PALETTED_FACTOR = 50;
+
+    // Same shape as the original mutable Block: one reference field
+    private static final class LegacyBlock {
+        final Material type;
+        LegacyBlock(Material type) { this.type = type; }
+    }
+
+    private interface Fill {
+        Material at(int x, int y, int z);
+    }
+
+    private interface Factory {
+        Object create(Fill fill);
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        String[] names = { "air", "uniform stone", "layered terrain", "noisy (random materials)" };
+        Fill[] fills = {
+            (x, y, z) -> Material.AIR,
+            (x, y, z) -> Material.STONE,
+            ChunkMemoryBenchmark::layered,
+            (x, y, z) -> MATERIALS[noise(x, y, z) % MATERIALS.length],
+        };
+        // Unreported pass so class loading and JIT allocations are not counted in the first row
+        for (Fill fill : fills) {
+            bytesPerChunk(10, fill, f -> legacy(f, true));
+            bytesPerChunk(10, fill, f -> legacy(f, false));
+            bytesPerChunk(10, fill, ChunkMemoryBenchmark::paletted);
+        }
+        System.out.println(count + " original and " + count * PALETTED_FACTOR + " paletted chunks per measurement, bytes per chunk");
+        System.out.println(String.format("%-26s %16s %16s %14s %14s %8s", "Kind", "Block objects", "Shared blocks",
+            "Paletted", "Estimated", "Ratio"));
+        for (int i = 0; i < fills.length; i++) {
+            Fill fill = fills[i];
+            long objects = bytesPerChunk(count, fill, f -> legacy(f, true));
+            long shared = bytesPerChunk(count, fill, f -> legacy(f, false));
+            long paletted = bytesPerChunk(count * PALETTED_FACTOR, fill, ChunkMemoryBenchmark::paletted);
+            long estimated = ((Chunk) paletted(fill)).estimateMemoryUsage();
+            System.out.println(String.format("%-26s %16d %16d %14d %14d %7.0fx", names[i], objects, shared, paletted, estimated,
+                objects / (double) Math.max(1, paletted)));
+        }
+    }
+
+    private static long bytesPerChunk(int count, Fill fill, Factory factory) {
+        Object[] held = new Object[count];
+        long before = usedHeap();
+        for (int i = 0; i < count; i++) held[i] = factory.create(fill);
+        long after = usedHeap();
+        Bench.sink += System.identityHashCode(held[count - 1]);
+        return (after - before) / count;
+    }
+
+    private static Object legacy(Fill fill, boolean objectPerVoxel) {
+        Object[][][] blocks = objectPerVoxel
+            ? new LegacyBlock[Chunk.SIZE][Chunk.HEIGHT][Chunk.SIZE]
+            : new Block[Chunk.SIZE][Chunk.HEIGHT][Chunk.SIZE];
+        for (int x = 0; x < Chunk.SIZE; x++)
+            for (int y = 0; y < Chunk.HEIGHT; y++)
+                for (int z = 0; z < Chunk.SIZE; z++) {
+                    Material material = fill.at(x, y, z);
+                    blocks[x][y][z] = objectPerVoxel ? new LegacyBlock(material) : Block.of(material);
+                }
+        return blocks;
+    }
+
+    private static Object paletted(Fill fill) {
+        Chunk chunk = Chunk.createGenerated(0, 0, 0);
+        for (int x = 0; x < Chunk.SIZE; x++)
+            for (int y = 0; y < Chunk.HEIGHT; y++)
+                for (int z = 0; z < Chunk.SIZE; z++) {
+                    Material material = fill.at(x, y, z);
+                    if (material != Material.AIR) chunk.setBlock(x, y, z, Block.of(material));
+                }
+        return chunk;
+    }
+
+    // Stone, three of dirt and a grass top around y = 60, water up to 62 where the ground is lower
+    private static Material layered(int x, int y, int z) {
+        int height = 56 + (noise(x, 0, z) & 7);
+        if (y < height - 3) return Material.STONE;
+        if (y < height) return Material.DIRT;
+        if (y == height) return Material.GRASS;
+        return y <= 62 ? Material.WATER : Material.AIR;
+    }
+
+    private static int noise(int x, int y, int z) {
+        return new Random((x * 31L + y) * 31L + z).nextInt() >>> 1;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Repeated until it stops shrinking, since one request may not collect everything
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) break;
+            used = now;
+        }
+        return used;
+    }
+}
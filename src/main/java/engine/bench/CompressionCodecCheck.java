@@ -0,0 +1,269 @@
+package engine.bench;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import engine.common.network.CompressionCodec;
+import engine.common.world.Chunk;
+import engine.common.world.DefaultChunkGenerator;
+import engine.common.world.NoiseChunkGenerator;
+import engine.server.ChunkDictionaryTrainer;
+
+/**
+ * Round-trip fuzzing of {@link CompressionCodec}, then its throughput on chunk payloads
+ * against the per-call Deflater/Inflater with a fixed 32 KB buffer it replaced.
+ *
+ * The fuzz covers random, repetitive and chunk-like inputs from empty to several
+ * hundred KB, array and direct buffers at odd offsets, every level, codecs with and
+ * without a dictionary, undersized output buffers and truncated or corrupt input, on
+ * several threads at once. Exits with status 1 if any case fails.
+ *
+ * Usage: {@code CompressionCodecCheck [fuzzRounds] [threads]}
+ */
+public class CompressionCodecCheck {
+    private static final int MAX_FUZZ_LENGTH = 300_000;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        List<byte[]> chunks = new ArrayList<>();
+        NoiseChunkGenerator noise = new NoiseChunkGenerator(7);
+        DefaultChunkGenerator flat = new DefaultChunkGenerator(1, 128);
+        for (int i = 0; i < 32; i++) {
+            Chunk chunk = Chunk.createGenerated(i, 0, i * 3);
+            (i % 2 == 0 ? noise : flat).populate(chunk);
+            chunks.add(chunk.encodeSections());
+        }
+        byte[] dictionary = ChunkDictionaryTrainer.train(chunks, ChunkDictionaryTrainer.MAX_DICTIONARY);
+        CompressionCodec plain = new CompressionCodec(Deflater.DEFAULT_COMPRESSION, null);
+        CompressionCodec trained = new CompressionCodec(Deflater.DEFAULT_COMPRESSION, dictionary);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            results.add(pool.submit(() -> fuzz(new Random(seed), rounds, chunks, plain, trained)));
+        }
+        List<String> failures = new ArrayList<>();
+        for (Future<List<String>> result : results) failures.addAll(result.get());
+        pool.shutdown();
+        failures.addAll(checkEdgeCases(plain, trained));
+        System.out.println("Fuzz: " + threads + " threads x " + rounds + " rounds, " + failures.size() + " failures");
+        for (int i = 0; i < Math.min(20, failures.size()); i++) System.out.println("  " + failures.get(i));
+
+        long raw = 0;
+        for (byte[] chunk : chunks) raw += chunk.length;
+        Bench.header("Chunk payloads, " + chunks.size() + " chunks, " + raw / chunks.size() + " bytes average");
+        long legacySize = 0, plainSize = 0, trainedSize = 0;
+        int legacyBroken = 0;
+        for (byte[] chunk : chunks) {
+            byte[] legacy = legacyCompress(chunk);
+            legacySize += legacy.length;
+            plainSize += plain.compress(chunk).length;
+            trainedSize += trained.compress(chunk).length;
+            if (!Arrays.equals(chunk, legacyDecompress(legacy))) legacyBroken++;
+        }
+        System.out.println(String.format("Compressed: legacy %d, codec %d, codec with dictionary %d bytes; legacy round trip broken for %d chunks",
+            legacySize, plainSize, trainedSize, legacyBroken));
+        List<byte[]> plainPackets = new ArrayList<>();
+        List<byte[]> legacyPackets = new ArrayList<>();
+        for (byte[] chunk : chunks) {
+            plainPackets.add(plain.compress(chunk));
+            legacyPackets.add(legacyCompress(chunk));
+        }
+        Bench.measure("compress, new Deflater per call", chunks.size(), () -> {
+            long sum = 0;
+            for (byte[] chunk : chunks) sum += legacyCompress(chunk).length;
+            return sum;
+        });
+        Bench.measure("compress, CompressionCodec", chunks.size(), () -> {
+            long sum = 0;
+            for (byte[] chunk : chunks) sum += plain.compress(chunk).length;
+            return sum;
+        });
+        ByteBuffer directIn = ByteBuffer.allocateDirect(MAX_FUZZ_LENGTH);
+        ByteBuffer directOut = ByteBuffer.allocateDirect(CompressionCodec.maxCompressedLength(MAX_FUZZ_LENGTH));
+        Bench.measure("compress, CompressionCodec direct buffers", chunks.size(), () -> {
+            long sum = 0;
+            for (byte[] chunk : chunks) {
+                directIn.clear();
+                directIn.put(chunk).flip();
+                directOut.clear();
+                sum += plain.compress(directIn, directOut);
+            }
+            return sum;
+        });
+        Bench.measure("decompress, new Inflater per call", chunks.size(), () -> {
+            long sum = 0;
+            for (byte[] packet : legacyPackets) sum += legacyDecompress(packet).length;
+            return sum;
+        });
+        Bench.measure("decompress, CompressionCodec", chunks.size(), () -> {
+            long sum = 0;
+            for (byte[] packet : plainPackets) sum += plain.decompress(packet).length;
+            return sum;
+        });
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static List<String> fuzz(Random random, int rounds, List<byte[]> chunks, CompressionCodec plain, CompressionCodec trained) {
+        List<String> failures = new ArrayList<>();
+        CompressionCodec[] levels = new CompressionCodec[Deflater.BEST_COMPRESSION + 1];
+        for (int level = 0; level < levels.length; level++) levels[level] = new CompressionCodec(level, null);
+        for (int round = 0; round < rounds; round++) {
+            byte[] data = input(random, chunks);
+            String name = "round " + round + " (" + data.length + " bytes)";
+            CompressionCodec codec;
+            switch (random.nextInt(3)) {
+                case 0: codec = plain; break;
+                case 1: codec = trained; break;
+                default: codec = levels[random.nextInt(levels.length)]; break;
+            }
+            try {
+                byte[] packed = codec.compress(data);
+                if (packed.length > CompressionCodec.maxCompressedLength(data.length))
+                    failures.add(name + ": " + packed.length + " bytes exceeds maxCompressedLength");
+                if (!Arrays.equals(data, codec.decompress(packed))) failures.add(name + ": array round trip differs");
+                // Plain streams must also read back through a dictionary codec
+                if (codec != trained && !Arrays.equals(data, trained.decompress(packed)))
+                    failures.add(name + ": plain stream differs through the dictionary codec");
+                if (!bufferRoundTrip(random, codec, data)) failures.add(name + ": buffer round trip differs");
+            } catch (Exception e) {
+                failures.add(name + ": " + e);
+            }
+        }
+        return failures;
+    }
+
+    private static byte[] input(Random random, List<byte[]> chunks) {
+        switch (random.nextInt(4)) {
+            case 0: {
+                byte[] data = new byte[random.nextInt(MAX_FUZZ_LENGTH)];
+                random.nextBytes(data);
+                return data;
+            }
+            case 1: {
+                // Long runs of a few values, like sparse sections
+                byte[] data = new byte[random.nextInt(MAX_FUZZ_LENGTH)];
+                for (int i = 0; i < data.length;) {
+                    int run = 1 + random.nextInt(4096);
+                    Arrays.fill(data, i, Math.min(data.length, i + run), (byte) random.nextInt(6));
+                    i += run;
+                }
+                return data;
+            }
+            case 2: {
+                byte[] chunk = chunks.get(random.nextInt(chunks.size()));
+                int from = random.nextInt(chunk.length);
+                return Arrays.copyOfRange(chunk, from, from + random.nextInt(chunk.length - from + 1));
+            }
+            default:
+                return new byte[random.nextInt(8)];
+        }
+    }
+
+    // Heap and direct buffers at random offsets, with bytes around the window that must stay untouched
+    private static boolean bufferRoundTrip(Random random, CompressionCodec codec, byte[] data) throws DataFormatException {
+        int pad = random.nextInt(17);
+        ByteBuffer in = buffer(random.nextBoolean(), pad + data.length + pad);
+        in.position(pad);
+        in.put(data);
+        in.position(pad).limit(pad + data.length);
+        ByteBuffer packed = buffer(random.nextBoolean(), pad + CompressionCodec.maxCompressedLength(data.length));
+        packed.position(pad);
+        int n = codec.compress(in, packed);
+        if (in.hasRemaining() || packed.position() != pad + n) return false;
+        packed.position(pad).limit(pad + n);
+        ByteBuffer out = buffer(random.nextBoolean(), pad + data.length + 1);
+        out.position(pad);
+        int m = codec.decompress(packed, out);
+        if (m != data.length || packed.hasRemaining() || out.position() != pad + m) return false;
+        byte[] result = new byte[m];
+        out.position(pad);
+        out.get(result);
+        return Arrays.equals(data, result);
+    }
+
+    private static ByteBuffer buffer(boolean direct, int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private static List<String> checkEdgeCases(CompressionCodec plain, CompressionCodec trained) {
+        List<String> failures = new ArrayList<>();
+        Random random = new Random(42);
+        byte[] noise = new byte[100_000];
+        random.nextBytes(noise);
+        try {
+            // The old codec truncated anything that did not compress below 32 KB
+            if (!Arrays.equals(noise, plain.decompress(plain.compress(noise)))) failures.add("incompressible 100 KB round trip differs");
+        } catch (DataFormatException e) {
+            failures.add("incompressible 100 KB: " + e);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(noise);
+        ByteBuffer small = ByteBuffer.allocate(1000);
+        try {
+            plain.compress(in, small);
+            failures.add("compress into an undersized buffer did not overflow");
+        } catch (BufferOverflowException e) {
+            if (in.position() != 0 || small.position() != 0) failures.add("overflowing compress moved the buffers");
+        }
+
+        byte[] packed = plain.compress(noise);
+        try {
+            plain.decompress(ByteBuffer.wrap(packed), ByteBuffer.allocate(noise.length - 1));
+            failures.add("decompress into an undersized buffer did not overflow");
+        } catch (BufferOverflowException expected) {
+        } catch (DataFormatException e) {
+            failures.add("undersized decompress: " + e);
+        }
+
+        expectFormatError(failures, "truncated stream", plain, Arrays.copyOf(packed, packed.length / 2));
+        byte[] corrupt = packed.clone();
+        corrupt[0] ^= 0x55;
+        expectFormatError(failures, "corrupt header", plain, corrupt);
+        expectFormatError(failures, "dictionary stream without the dictionary", plain, trained.compress(new byte[5000]));
+        CompressionCodec other = new CompressionCodec(Deflater.DEFAULT_COMPRESSION, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        expectFormatError(failures, "dictionary stream with another dictionary", other, trained.compress(new byte[5000]));
+        return failures;
+    }
+
+    private static void expectFormatError(List<String> failures, String name, CompressionCodec codec, byte[] data) {
+        try {
+            codec.decompress(data);
+            failures.add(name + ": decompressed without an error");
+        } catch (DataFormatException expected) {
+        } catch (RuntimeException e) {
+            failures.add(name + ": " + e);
+        }
+    }
+
+    // NetworkManager.compress before the codec: a Deflater per call, never ended, 32 KB output
+    private static byte[] legacyCompress(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[32768];
+        int size = deflater.deflate(buffer);
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private static byte[] legacyDecompress(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(data);
+        byte[] buffer = new byte[32768];
+        int size = inflater.inflate(buffer);
+        return Arrays.copyOf(buffer, size);
+    }
+}
@@ -0,0 +1,87 @@
+package engine.bench;
+
+import engine.common.block.Block;
+import engine.common.block.Material;
+import engine.common.world.Chunk;
+import engine.common.world.DensityChunkGenerator;
+
+/**
+ * {@link DensityChunkGenerator}'s lattice sampling with trilinear interpolation against
+ * evaluating the density at every voxel. Both fill the chunk with the same material
+ * rules; the report includes how many voxels change solidity through interpolation.
+ *
+ * Usage: {@code DensityGeneratorBenchmark [chunks]}
+ */
+public class DensityGeneratorBenchmark {
+    private static final int SEA_LEVEL = 48;
+    private static final int FILLER_DEPTH = 3;
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        DensityChunkGenerator generator = new DensityChunkGenerator(0, SEA_LEVEL);
+
+        Bench.header("Density terrain, " + count + " chunks");
+        double lattice = Bench.measure("Lattice + trilinear interpolation", count, () -> {
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                Chunk chunk = Chunk.createGenerated(i, 0, 0);
+                generator.generate(chunk);
+                sum += chunk.getVersion();
+            }
+            return sum;
+        });
+        double naive = Bench.measure("Density at every voxel", count, () -> {
+            long sum = 0;
+            for (int i = 0; i < count; i++) sum += generateNaive(generator, Chunk.createGenerated(i, 0, 0)).getVersion();
+            return sum;
+        });
+        System.out.println(String.format("Speed-up %.1fx", naive / lattice));
+
+        long differing = 0, voxels = 0;
+        for (int i = 0; i < count; i++) {
+            Chunk interpolated = Chunk.createGenerated(i, 0, 0);
+            generator.generate(interpolated);
+            Chunk exact = generateNaive(generator, Chunk.createGenerated(i, 0, 0));
+            for (int x = 0; x < Chunk.SIZE; x++)
+                for (int y = 0; y < Chunk.HEIGHT; y++)
+                    for (int z = 0; z < Chunk.SIZE; z++) {
+                        voxels++;
+                        if (isSolid(interpolated.getMaterial(x, y, z)) != isSolid(exact.getMaterial(x, y, z))) differing++;
+                    }
+        }
+        System.out.println(String.format("Solidity differs from exact sampling in %d of %d voxels (%.2f%%)",
+            differing, voxels, 100.0 * differing / voxels));
+        System.exit(0);
+    }
+
+    // Same material rules as the generator, with the density evaluated for every voxel
+    private static Chunk generateNaive(DensityChunkGenerator generator, Chunk chunk) {
+        int baseX = chunk.getX() * Chunk.SIZE;
+        int baseY = chunk.getY() * Chunk.HEIGHT;
+        int baseZ = chunk.getZ() * Chunk.SIZE;
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            for (int z = 0; z < Chunk.SIZE; z++) {
+                int depth = -1;
+                for (int y = Chunk.HEIGHT - 1; y >= 0; y--) {
+                    int worldY = baseY + y;
+                    if (generator.density(baseX + x, worldY, baseZ + z) <= 0) {
+                        depth = -1;
+                        if (worldY <= SEA_LEVEL) chunk.setBlock(x, y, z, Block.of(Material.WATER));
+                        continue;
+                    }
+                    depth++;
+                    Material material;
+                    if (depth == 0) material = worldY < SEA_LEVEL ? Material.SAND : Material.GRASS;
+                    else if (depth <= FILLER_DEPTH) material = worldY < SEA_LEVEL ? Material.SAND : Material.DIRT;
+                    else material = Material.STONE;
+                    chunk.setBlock(x, y, z, Block.of(material));
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private static boolean isSolid(Material material) {
+        return material != Material.AIR && material != Material.WATER;
+    }
+}
@@ -0,0 +1,131 @@
+package engine.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import engine.common.block.Block;
+import engine.common.block.Material;
+import engine.common.network.NetworkManager;
+import engine.common.network.packet.ChunkDataPacket;
+import engine.common.world.Chunk;
+import engine.common.world.NoiseChunkGenerator;
+import engine.server.ChunkCacheStats;
+import engine.server.ChunkGenerationScheduler;
+import engine.server.ChunkSendQueue;
+import engine.server.World;
+
+/**
+ * A mass join at spawn: every player's {@link ChunkSendQueue} drains the same chunks,
+ * with the shared payload cache, against compressing each chunk once per connection
+ * as before. A block edit at spawn is then re-sent to everyone, which must rebuild the
+ * payload once and share it again.
+ *
+ * Usage: {@code PayloadCacheBenchmark [players] [viewRadius]}
+ */
+public class PayloadCacheBenchmark {
+
+    private static final class CountingConnection extends Connection {
+        long bytes;
+
+        @Override
+        public int sendTCP(Object object) {
+            if (object instanceof ChunkDataPacket) bytes += ((ChunkDataPacket) object).blockTypes.length;
+            return 0;
+        }
+
+        @Override
+        public int getTcpWriteBufferSize() {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int radius = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        File dir = Files.createTempDirectory("voxel-join").toFile();
+        try {
+            NoiseChunkGenerator generator = new NoiseChunkGenerator(3);
+            World world = new World(dir, generator);
+            List<Chunk> spawn = new ArrayList<>();
+            for (int x = -radius; x <= radius; x++)
+                for (int z = -radius; z <= radius; z++)
+                    spawn.add(world.getOrCreateChunk(x, 0, z, generator, null));
+            ChunkGenerationScheduler scheduler = new ChunkGenerationScheduler(world, generator, (x, y, z) -> 0, 4, 256, radius + 1);
+
+            // Before the cache: every connection encoded and compressed its own copy. One
+            // untimed pass first, so both variants run compiled code
+            for (Chunk chunk : spawn) NetworkManager.compress(chunk.encodeSections());
+            long start = System.nanoTime();
+            long uncachedBytes = 0;
+            for (int p = 0; p < players; p++) {
+                for (Chunk chunk : spawn) uncachedBytes += NetworkManager.compress(chunk.encodeSections()).length;
+            }
+            double uncachedMs = (System.nanoTime() - start) / 1e6;
+
+            List<CountingConnection> connections = new ArrayList<>();
+            List<ChunkSendQueue> queues = new ArrayList<>();
+            for (int p = 0; p < players; p++) {
+                CountingConnection connection = new CountingConnection();
+                ChunkSendQueue queue = new ChunkSendQueue(connection, world, scheduler, radius);
+                queue.setCenter(0, 0);
+                connections.add(connection);
+                queues.add(queue);
+            }
+            ChunkCacheStats stats = world.getCacheStats();
+            start = System.nanoTime();
+            int ticks = drainAll(queues);
+            double cachedMs = (System.nanoTime() - start) / 1e6;
+            long sentBytes = 0;
+            for (CountingConnection connection : connections) sentBytes += connection.bytes;
+            System.out.println(String.format("%d players join, %d chunks each: per-connection compression %.1f ms (%d bytes), "
+                + "shared cache %.1f ms over %d ticks (%d bytes)", players, spawn.size(), uncachedMs, uncachedBytes, cachedMs, ticks, sentBytes));
+            report("Join", stats, 0, 0, 0);
+
+            long hits = stats.getPayloadHits(), builds = stats.getPayloadBuilds(), buildNanos = stats.getPayloadBuildNanos();
+            Chunk edited = spawn.get(spawn.size() / 2);
+            world.setBlock(edited, 1, 100, 1, Block.of(Material.STONE));
+            start = System.nanoTime();
+            for (int p = 0; p < players; p++) connections.get(p).sendTCP(new ChunkDataPacket(edited.getX(), 0, edited.getZ(), world.getChunkPayload(edited)));
+            System.out.println(String.format("Edit re-sent to %d players in %.2f ms", players, (System.nanoTime() - start) / 1e6));
+            report("Edit", stats, hits, builds, buildNanos);
+            world.close();
+        } finally {
+            deleteAll(dir);
+        }
+        System.exit(0);
+    }
+
+    private static int drainAll(List<ChunkSendQueue> queues) {
+        int ticks = 0;
+        boolean sent = true;
+        while (sent) {
+            sent = false;
+            ticks++;
+            for (ChunkSendQueue queue : queues) {
+                long before = queue.getSentChunks();
+                queue.drain(8, 1 << 20, 1 << 20);
+                if (queue.getSentChunks() != before) sent = true;
+            }
+        }
+        return ticks;
+    }
+
+    private static void report(String phase, ChunkCacheStats stats, long hitsBefore, long buildsBefore, long buildNanosBefore) {
+        long hits = stats.getPayloadHits() - hitsBefore;
+        long builds = stats.getPayloadBuilds() - buildsBefore;
+        long buildNanos = stats.getPayloadBuildNanos() - buildNanosBefore;
+        double perBuild = builds == 0 ? 0 : buildNanos / (double) builds;
+        System.out.println(String.format("%s: payload hits %d, builds %d, hit rate %.1f%%, build time %.2f ms, CPU saved ~%.1f ms",
+            phase, hits, builds, 100.0 * hits / Math.max(1, hits + builds), buildNanos / 1e6, hits * perBuild / 1e6));
+    }
+
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) deleteAll(child);
+        file.delete();
+    }
+}
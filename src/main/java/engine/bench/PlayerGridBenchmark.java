@@ -0,0 +1,114 @@
+package engine.bench;
+
+import java.util.Random;
+import java.util.UUID;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import engine.common.network.packet.EntityMovePacket;
+import engine.common.player.Player;
+import engine.server.PlayerGrid;
+
+/**
+ * Packets and CPU per tick for {@link PlayerGrid} replication with many simulated
+ * players wandering over a square area, against relaying every move to every other
+ * connection. Three in four players move each tick. Connections only count what they
+ * are sent.
+ *
+ * Usage: {@code PlayerGridBenchmark [players] [areaChunks] [viewRadius] [ticks]}
+ */
+public class PlayerGridBenchmark {
+
+    private static final class CountingConnection extends Connection {
+        long tcp, udp;
+
+        @Override
+        public int sendTCP(Object object) {
+            tcp++;
+            return 0;
+        }
+
+        @Override
+        public int sendUDP(Object object) {
+            udp++;
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int area = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int viewRadius = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int ticks = args.length > 3 ? Integer.parseInt(args[3]) : 300;
+        Random random = new Random(1);
+        PlayerGrid grid = new PlayerGrid(viewRadius);
+        CountingConnection[] connections = new CountingConnection[count];
+        Player[] players = new Player[count];
+        int[] ids = new int[count];
+        int[] sequences = new int[count];
+        for (int i = 0; i < count; i++) {
+            connections[i] = new CountingConnection();
+            players[i] = new Player(UUID.randomUUID(), "Player" + i, connections[i]);
+            players[i].setPosition(random.nextFloat() * area * 16, 64, random.nextFloat() * area * 16);
+            ids[i] = grid.add("player" + i, players[i]);
+        }
+        grid.replicate();
+        System.out.println(count + " players over " + area + "x" + area + " chunks, view radius " + viewRadius
+            + "; " + grid.getEnterPackets() + " enter notices on join");
+
+        for (int round = 0; round < 3; round++) {
+            long packetsBefore = sent(connections);
+            long enters = grid.getEnterPackets(), leaves = grid.getLeavePackets(), moves = grid.getMovePackets();
+            long moveNanos = 0, replicateNanos = 0;
+            for (int t = 0; t < ticks; t++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    if (random.nextInt(4) == 0) continue;
+                    Player p = players[i];
+                    float x = clamp(p.getX() + (random.nextFloat() - 0.5f) * 2, area);
+                    float z = clamp(p.getZ() + (random.nextFloat() - 0.5f) * 2, area);
+                    grid.applyMove(connections[i], new EntityMovePacket(ids[i], ++sequences[i], x, 64, z, 0, 0));
+                }
+                long moved = System.nanoTime();
+                grid.replicate();
+                moveNanos += moved - start;
+                replicateNanos += System.nanoTime() - moved;
+            }
+            System.out.println(String.format("Round %d: %.0f packets/tick (%.1f enter, %.1f leave, %.0f move), "
+                + "applyMove %.3f ms/tick, replicate %.3f ms/tick", round + 1,
+                (sent(connections) - packetsBefore) / (double) ticks,
+                (grid.getEnterPackets() - enters) / (double) ticks, (grid.getLeavePackets() - leaves) / (double) ticks,
+                (grid.getMovePackets() - moves) / (double) ticks, moveNanos / 1e6 / ticks, replicateNanos / 1e6 / ticks));
+        }
+
+        // Relaying every move to every other connection, as without the grid
+        long packetsBefore = sent(connections);
+        long start = System.nanoTime();
+        int naiveTicks = Math.max(1, ticks / 10);
+        for (int t = 0; t < naiveTicks; t++) {
+            EntityMovePacket[] packets = new EntityMovePacket[count];
+            for (int i = 0; i < count; i++) {
+                if ((i & 3) == 0) continue;
+                Player p = players[i];
+                packets[i] = new EntityMovePacket(ids[i], sequences[i], p.getX(), p.getY(), p.getZ(), 0, 0);
+            }
+            for (int viewer = 0; viewer < count; viewer++) {
+                for (int i = 0; i < count; i++) {
+                    if (i != viewer && packets[i] != null) connections[viewer].sendUDP(packets[i]);
+                }
+            }
+        }
+        System.out.println(String.format("All-to-all: %.0f packets/tick, %.3f ms/tick",
+            (sent(connections) - packetsBefore) / (double) naiveTicks, (System.nanoTime() - start) / 1e6 / naiveTicks));
+    }
+
+    private static float clamp(float coordinate, int area) {
+        return Math.max(0, Math.min(area * 16 - 0.001f, coordinate));
+    }
+
+    private static long sent(CountingConnection[] connections) {
+        long total = 0;
+        for (CountingConnection connection : connections) total += connection.tcp + connection.udp;
+        return total;
+    }
+}
@@ -0,0 +1,96 @@
+package engine.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import engine.common.world.Chunk;
+import engine.common.world.ColumnCache;
+import engine.common.world.DefaultChunkGenerator;
+import engine.common.world.NoiseChunkGenerator;
+import engine.server.ChunkGenerator;
+
+/**
+ * Chunks per second for the terrain generators at increasing thread counts. The noise
+ * generator runs twice: on fresh columns, where every chunk computes its heights and
+ * biomes, and on a small set of columns it has cached already, as vertical and
+ * neighbouring chunks of the same column would.
+ *
+ * Usage: {@code TerrainGeneratorBenchmark [secondsPerRun] [maxThreads]}
+ */
+public class TerrainGeneratorBenchmark {
+    // Chunks of the reused area, a square that fits the column cache
+    private static final int REUSED_SIDE = 8;
+
+    // Each run and thread takes its own strip of rows, so fresh runs never hit earlier columns
+    private static int nextStrip;
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 3;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long millis = (long) (seconds * 1000);
+        System.out.println("Threads up to " + maxThreads + ", " + seconds + " s per run");
+
+        // Warm-up, so the first measured run is not paying for compilation
+        run(new DefaultChunkGenerator(1, 128), 1, false, 1000);
+        run(new NoiseChunkGenerator(0), 1, false, 1000);
+
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) threadCounts.add(threads);
+        threadCounts.add(maxThreads);
+        for (int threads : threadCounts) {
+            Bench.header(threads + " thread" + (threads == 1 ? "" : "s"));
+            report("DefaultChunkGenerator", threads, run(new DefaultChunkGenerator(1, 128), threads, false, millis), millis, null);
+            NoiseChunkGenerator fresh = new NoiseChunkGenerator(0);
+            report("NoiseChunkGenerator, fresh columns", threads, run(fresh, threads, false, millis), millis, fresh.getColumnCache());
+            NoiseChunkGenerator cached = new NoiseChunkGenerator(0);
+            report("NoiseChunkGenerator, cached columns", threads, run(cached, threads, true, millis), millis, cached.getColumnCache());
+        }
+        System.exit(0);
+    }
+
+    private static long run(ChunkGenerator generator, int threads, boolean reuseColumns, long millis) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            long deadline = System.currentTimeMillis() + millis;
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int strip = nextStrip++ * REUSED_SIDE;
+                results.add(pool.submit(() -> {
+                    long count = 0;
+                    while (System.currentTimeMillis() < deadline) {
+                        int x, z;
+                        if (reuseColumns) {
+                            x = (int) (count % REUSED_SIDE);
+                            z = strip + (int) (count / REUSED_SIDE % REUSED_SIDE);
+                        } else {
+                            x = (int) (count / REUSED_SIDE);
+                            z = strip + (int) (count % REUSED_SIDE);
+                        }
+                        Chunk chunk = Chunk.createGenerated(x, 0, z);
+                        generator.populate(chunk);
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> result : results) total += result.get();
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void report(String name, int threads, long chunks, long millis, ColumnCache<?> cache) {
+        double perSecond = chunks * 1000.0 / millis;
+        String line = String.format("%-44s %10.0f chunks/s %10.0f per thread", name, perSecond, perSecond / threads);
+        if (cache != null) {
+            long hits = cache.getHits(), misses = cache.getMisses();
+            line += String.format(", column cache hit rate %.1f%%", 100.0 * hits / Math.max(1, hits + misses));
+        }
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,120 @@
+package engine.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import engine.common.world.Chunk;
+import engine.common.world.ChunkSection;
+import engine.common.world.DefaultChunkGenerator;
+import engine.common.world.TerrainKernels;
+
+/**
+ * The scalar {@link TerrainKernels} against the {@code jdk.incubator.vector} ones, per
+ * kernel call over a chunk's 256 columns, after checking that both give identical
+ * output on random input. Also times whole chunks from {@link DefaultChunkGenerator}
+ * with whichever kernels {@link TerrainKernels#get()} picked.
+ *
+ * The vector kernels are only present in builds with the {@code vector} profile and
+ * need {@code --add-modules jdk.incubator.vector} at run time.
+ *
+ * Usage: {@code TerrainKernelBenchmark [calls]}
+ */
+public class TerrainKernelBenchmark {
+    private static final String VECTOR_IMPL = "engine.common.world.VectorTerrainKernels";
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        TerrainKernels scalar = new TerrainKernels() { };
+        TerrainKernels vector = loadVector();
+
+        Random random = new Random(1);
+        double[] xTerm = new double[Chunk.SIZE];
+        double[] zTerm = new double[Chunk.SIZE];
+        for (int i = 0; i < Chunk.SIZE; i++) {
+            xTerm[i] = (random.nextDouble() - 0.5) * 40;
+            zTerm[i] = (random.nextDouble() - 0.5) * 40;
+        }
+        int[] heights = new int[TerrainKernels.COLUMNS];
+        byte[] surface = new byte[TerrainKernels.COLUMNS];
+        for (int i = 0; i < surface.length; i++) surface[i] = (byte) (1 + random.nextInt(4));
+        scalar.columnHeights(xTerm, zTerm, 40, 1, 126, heights);
+
+        if (vector == null) {
+            System.out.println("Vector kernels not available: build with -Pvector and run with --add-modules jdk.incubator.vector");
+        } else {
+            int mismatches = compare(scalar, vector, random);
+            System.out.println("Vector kernels " + vector.getName() + ": " + mismatches + " mismatching outputs on random input");
+        }
+
+        int[] heightsOut = new int[TerrainKernels.COLUMNS];
+        byte[] layers = new byte[ChunkSection.VOLUME];
+        for (TerrainKernels kernels : vector == null ? new TerrainKernels[] { scalar } : new TerrainKernels[] { scalar, vector }) {
+            Bench.header(kernels.getName() + " kernels, " + calls + " calls per round");
+            Bench.measure("columnHeights", calls, () -> {
+                long sum = 0;
+                for (int i = 0; i < calls; i++) {
+                    kernels.columnHeights(xTerm, zTerm, 40 + (i & 7), 1, 126, heightsOut);
+                    sum += heightsOut[i & 255];
+                }
+                return sum;
+            });
+            Bench.measure("fillLayer", calls, () -> {
+                long sum = 0;
+                for (int i = 0; i < calls; i++) {
+                    int y = i & 127;
+                    kernels.fillLayer(heights, surface, y, 48, layers, (y & 15) * TerrainKernels.COLUMNS);
+                    sum += layers[i & 255];
+                }
+                return sum;
+            });
+        }
+
+        DefaultChunkGenerator generator = new DefaultChunkGenerator(48, 128);
+        Bench.header("DefaultChunkGenerator with " + TerrainKernels.get().getName() + " kernels");
+        Bench.measure("generate", 1000, () -> {
+            long sum = 0;
+            for (int i = 0; i < 1000; i++) {
+                Chunk chunk = Chunk.createGenerated(i, 0, i >> 4);
+                generator.generate(chunk);
+                sum += chunk.getVersion();
+            }
+            return sum;
+        });
+        System.exit(0);
+    }
+
+    private static TerrainKernels loadVector() {
+        try {
+            return (TerrainKernels) Class.forName(VECTOR_IMPL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static int compare(TerrainKernels scalar, TerrainKernels vector, Random random) {
+        int mismatches = 0;
+        double[] xTerm = new double[Chunk.SIZE];
+        double[] zTerm = new double[Chunk.SIZE];
+        int[] a = new int[TerrainKernels.COLUMNS];
+        int[] b = new int[TerrainKernels.COLUMNS];
+        byte[] surface = new byte[TerrainKernels.COLUMNS];
+        byte[] layerA = new byte[TerrainKernels.COLUMNS];
+        byte[] layerB = new byte[TerrainKernels.COLUMNS];
+        for (int round = 0; round < 10_000; round++) {
+            for (int i = 0; i < Chunk.SIZE; i++) {
+                xTerm[i] = (random.nextDouble() - 0.5) * 300;
+                zTerm[i] = (random.nextDouble() - 0.5) * 300;
+            }
+            int base = random.nextInt(128);
+            scalar.columnHeights(xTerm, zTerm, base, 1, 126, a);
+            vector.columnHeights(xTerm, zTerm, base, 1, 126, b);
+            if (!Arrays.equals(a, b)) mismatches++;
+            random.nextBytes(surface);
+            int y = random.nextInt(Chunk.HEIGHT);
+            scalar.fillLayer(a, surface, y, 48, layerA, 0);
+            vector.fillLayer(a, surface, y, 48, layerB, 0);
+            if (!Arrays.equals(layerA, layerB)) mismatches++;
+        }
+        return mismatches;
+    }
+}
@@ -0,0 +1,96 @@
+package engine.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import engine.common.world.Chunk;
+import engine.common.world.DefaultChunkGenerator;
+import engine.server.World;
+import engine.server.storage.RegionStorage;
+
+/**
+ * Startup time and heap of a synthetic world with many stored chunks: opening it with
+ * the on-demand index, cold loads of scattered chunks afterwards, and the eager
+ * {@link World#loadAll} it replaced at startup. The eager load runs on a smaller copy
+ * of the world and is scaled up, since it keeps every chunk in memory.
+ *
+ * Usage: {@code WorldStartupBenchmark [chunks] [eagerChunks] [coldLoads]}
+ */
+public class WorldStartupBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int eagerCount = Math.min(count, args.length > 1 ? Integer.parseInt(args[1]) : 10_000);
+        int coldLoads = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        File lazyDir = Files.createTempDirectory("voxel-startup").toFile();
+        File eagerDir = Files.createTempDirectory("voxel-startup-eager").toFile();
+        try {
+            Chunk template = Chunk.createGenerated(0, 0, 0);
+            new DefaultChunkGenerator(1, 128).populate(template);
+            byte[] payload = template.encodeSections();
+            int side = (int) Math.ceil(Math.sqrt(count));
+            long start = System.nanoTime();
+            writeWorld(lazyDir, payload, count, side);
+            writeWorld(eagerDir, payload, eagerCount, side);
+            System.out.println(String.format("Wrote %d + %d stored chunks in %.1f s",
+                count, eagerCount, (System.nanoTime() - start) / 1e9));
+
+            long heapBefore = usedHeap();
+            start = System.nanoTime();
+            World world = new World(lazyDir);
+            double openMs = (System.nanoTime() - start) / 1e6;
+            long heapAfter = usedHeap();
+            System.out.println(String.format("On-demand open: %.0f ms, %d chunks indexed, %d loaded, heap +%.1f MB",
+                openMs, world.getStoredChunkCount(), world.getHotChunkCount(), (heapAfter - heapBefore) / 1048576.0));
+
+            Random random = new Random(1);
+            start = System.nanoTime();
+            for (int i = 0; i < coldLoads; i++) {
+                int index = random.nextInt(count);
+                world.getChunk(index % side, 0, index / side);
+            }
+            System.out.println(String.format("Cold loads: %d in %.0f ms (%s)",
+                coldLoads, (System.nanoTime() - start) / 1e6, world.getLoadMetrics()));
+            world.close();
+
+            heapBefore = usedHeap();
+            start = System.nanoTime();
+            World eager = new World(eagerDir);
+            eager.loadAll();
+            double eagerMs = (System.nanoTime() - start) / 1e6;
+            heapAfter = usedHeap();
+            double scale = count / (double) eagerCount;
+            System.out.println(String.format("Eager loadAll of %d chunks: %.0f ms, heap +%.1f MB; scaled to %d: ~%.1f s, ~%.0f MB",
+                eagerCount, eagerMs, (heapAfter - heapBefore) / 1048576.0, count,
+                eagerMs * scale / 1000, (heapAfter - heapBefore) * scale / 1048576.0));
+            eager.close();
+        } finally {
+            deleteAll(lazyDir);
+            deleteAll(eagerDir);
+        }
+        System.exit(0);
+    }
+
+    private static void writeWorld(File dir, byte[] payload, int count, int side) throws IOException {
+        RegionStorage storage = new RegionStorage(dir);
+        try {
+            for (int i = 0; i < count; i++) storage.writePayload(i % side, 0, i / side, payload);
+        } finally {
+            storage.close();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) deleteAll(child);
+        file.delete();
+    }
+}
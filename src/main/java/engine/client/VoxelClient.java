@@ -4,13 +4,20 @@ import com.esotericsoftware.kryonet.*;
 
 import engine.common.block.Block;
 import engine.common.block.BlockRegistry;
+import engine.common.block.Material;
 import engine.common.network.NetworkManager;
 import engine.common.network.packet.BlockUpdatePacket;
 import engine.common.network.packet.ChunkDataPacket;
+import engine.common.network.packet.EntityMovePacket;
+import engine.common.network.packet.MultiBlockChangePacket;
 import engine.common.network.packet.PlayerChatPacket;
+import engine.common.network.packet.PlayerEnterViewPacket;
+import engine.common.network.packet.PlayerJoinAckPacket;
 import engine.common.network.packet.PlayerJoinPacket;
-import engine.common.network.packet.PlayerMovePacket;
+import engine.common.network.packet.PlayerLeaveViewPacket;
+import engine.common.network.packet.SectionDataPacket;
 import engine.common.world.Chunk;
+import engine.common.world.ChunkSection;
 import engine.client.common.Player;
 
 import org.lwjgl.glfw.GLFW;
@@ -27,7 +34,8 @@ public class VoxelClient {
     private WorldView worldView = new WorldView(); // In-memory only
     private BlockRegistry blockRegistry = BlockRegistry.createDefault();
     private Player localPlayer = new Player(UUID.randomUUID(), "Player");
-    private Map<String, Player> otherPlayers = new HashMap<>();
+    // Players in view, by entity id
+    private Map<Integer, RemotePlayer> otherPlayers = new HashMap<>();
     private TextureManager textureManager = new TextureManager();
     private VoxelRenderer renderer = new VoxelRenderer(worldView, blockRegistry, textureManager);
 
@@ -37,6 +45,26 @@ public class VoxelClient {
     }
     private final Map<Class<?>, PacketHandler<?>> packetHandlers = new HashMap<>();
 
+    // Chunks beyond the render (or server view) distance are kept one extra ring before being dropped;
+    // the server forgets what it sent past its view distance + 1 and relies on this to resend in time.
+    // The server's radius comes with the join reply, which it sends ahead of any chunk
+    private volatile int chunkKeepDistance = VoxelRenderer.VIEW_DISTANCE + 1;
+
+    // Entity id from the server's join reply; 0 until it arrives, and no moves are sent before then
+    private volatile int entityId;
+    // Moves go out at most at the server tick rate, and only when the quantized pose changed
+    private static final long MOVE_SEND_INTERVAL_NS = 1_000_000_000L / 30;
+    private long lastMoveSendTime;
+    private int moveSequence;
+    private EntityMovePacket lastMoveSent;
+    private boolean lastMoveRepeated;
+
+    private static final class RemotePlayer {
+        final Player player = new Player(UUID.randomUUID(), "Player");
+        // Last move applied; older ones still in flight are dropped
+        int sequence;
+    }
+
     // Camera state
     private float camYaw = 0, camPitch = 0;
     private double lastMouseX = 400, lastMouseY = 300;
@@ -87,7 +115,7 @@ public class VoxelClient {
         // --- Jumping variables ---
         float velocityY = 0f;
         Block blockBelow = worldView.getBlock((int)localPlayer.getX(), (int)(localPlayer.getY() - 0.01f), (int)localPlayer.getZ());
-        boolean onGround = blockBelow != null && blockBelow.isSolid();
+        boolean onGround = blockBelow != null && blockRegistry.isSolid(blockBelow.getType().getId());
         boolean jumping = false;
         float gravity = -0.06f; // Adjust for world scale/speed
         float jumpStrength = 0.3f; // Adjust for desired jump height
@@ -161,7 +189,7 @@ public class VoxelClient {
             py += velocityY;
 
             Block blockBelowAfter = worldView.getBlock((int)px, (int)(py - 0.01f), (int)pz);
-            if (velocityY < 0 && blockBelowAfter != null && blockBelowAfter.isSolid()) {
+            if (velocityY < 0 && blockBelowAfter != null && blockRegistry.isSolid(blockBelowAfter.getType().getId())) {
                 py = (float)Math.ceil(py);
                 velocityY = 0f;
                 jumping = false;
@@ -172,11 +200,7 @@ public class VoxelClient {
             localPlayer.setPosition(px, py, pz);
 
             // Send movement packet
-            PlayerMovePacket pm = new PlayerMovePacket();
-            pm.playerId = localPlayer.getUniqueID().toString();
-            pm.x = localPlayer.getX(); pm.y = localPlayer.getY(); pm.z = localPlayer.getZ();
-            pm.yaw = camYaw; pm.pitch = camPitch;
-            client.sendTCP(pm);
+            sendMove(client);
 
             // --- First-person camera setup ---
             float camHeight = 1.7f; // Typical eye height in blocks
@@ -213,6 +237,10 @@ public class VoxelClient {
             }
 
 
+            // Drop chunks that fell out of range and free their meshes on this (GL) thread
+            worldView.unloadOutside((int) Math.floor(px / Chunk.SIZE), (int) Math.floor(pz / Chunk.SIZE), chunkKeepDistance);
+            worldView.drainRemoved(renderer::removeChunkMeshes);
+
             renderer.renderWorld(localPlayer);
             MessageOverlay.render();
             
@@ -260,31 +288,85 @@ public class VoxelClient {
         packetHandlers.put(BlockUpdatePacket.class, (PacketHandler<BlockUpdatePacket>) (connection, bu) -> {
             Chunk chunk = worldView.getChunk(bu.chunkX, bu.chunkY, bu.chunkZ);
             if (chunk != null) {
-                chunk.setBlock(bu.x, bu.y, bu.z, new Block(bu.blockType));
+                chunk.setBlock(bu.x, bu.y, bu.z, Block.of(bu.blockType));
+            }
+        });
+
+        // Blocks changed in one section during a server tick
+        packetHandlers.put(MultiBlockChangePacket.class, (PacketHandler<MultiBlockChangePacket>) (connection, mb) -> {
+            Chunk chunk = worldView.getChunk(mb.chunkX, mb.chunkY, mb.chunkZ);
+            if (chunk == null) return;
+            int baseY = mb.section * ChunkSection.SIZE;
+            for (int i = 0; i < mb.positions.length; i++) {
+                short p = mb.positions[i];
+                chunk.setBlock(MultiBlockChangePacket.getX(p), baseY + MultiBlockChangePacket.getY(p), MultiBlockChangePacket.getZ(p),
+                    Block.of(Material.fromId(mb.ids[i])));
+            }
+        });
+
+        // Section changed too much for a change list; replace it whole
+        packetHandlers.put(SectionDataPacket.class, (PacketHandler<SectionDataPacket>) (connection, sd) -> {
+            Chunk chunk = worldView.getChunk(sd.chunkX, sd.chunkY, sd.chunkZ);
+            if (chunk == null || sd.section < 0 || sd.section >= Chunk.SECTIONS) return;
+            byte[] ids;
+            try {
+                ids = NetworkManager.decompress(sd.blockTypes);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return;
             }
+            if (ids.length == ChunkSection.VOLUME) chunk.setSection(sd.section, ids, 0);
         });
 
         packetHandlers.put(PlayerChatPacket.class, (PacketHandler<PlayerChatPacket>) (connection, pc) -> {
         	MessageOverlay.addMessage(pc.message);
         });
-        // Handle other player movement packet
-        packetHandlers.put(PlayerMovePacket.class, (PacketHandler<PlayerMovePacket>) (connection, pm) -> {
-            // Don't update localPlayer from network
-            if (!localPlayer.getUniqueID().toString().equals(pm.playerId)) {
-            	Player p = otherPlayers.get(pm.playerId);
-                if (p == null) {
-                    p = new Player(UUID.randomUUID(), "Player");
-                    otherPlayers.put(pm.playerId, p);
-                }
-                p.setPosition(pm.x, pm.y, pm.z);
-                p.setYaw(pm.yaw);
-                p.setPitch(pm.pitch);
-            }
+        packetHandlers.put(PlayerJoinAckPacket.class, (PacketHandler<PlayerJoinAckPacket>) (connection, ack) -> {
+            entityId = ack.entityId;
+            chunkKeepDistance = Math.max(VoxelRenderer.VIEW_DISTANCE, ack.viewRadius) + 1;
+        });
+
+        // Handle other player movement packet; arrives over UDP, so it may be late or reordered
+        packetHandlers.put(EntityMovePacket.class, (PacketHandler<EntityMovePacket>) (connection, em) -> {
+            RemotePlayer remote = otherPlayers.get(em.entityId);
+            if (remote == null || !EntityMovePacket.isNewer(em.sequence, remote.sequence)) return;
+            remote.sequence = em.sequence;
+            remote.player.setPosition(em.getX(), em.getY(), em.getZ());
+            remote.player.setYaw(em.getYaw());
+            remote.player.setPitch(em.getPitch());
+        });
+
+        // Server announces players as they come within view and retracts them as they leave it
+        packetHandlers.put(PlayerEnterViewPacket.class, (PacketHandler<PlayerEnterViewPacket>) (connection, pe) -> {
+            RemotePlayer remote = otherPlayers.computeIfAbsent(pe.entityId, id -> new RemotePlayer());
+            remote.sequence = pe.sequence;
+            remote.player.setPosition(pe.x, pe.y, pe.z);
+            remote.player.setYaw(pe.yaw);
+            remote.player.setPitch(pe.pitch);
+        });
+        packetHandlers.put(PlayerLeaveViewPacket.class, (PacketHandler<PlayerLeaveViewPacket>) (connection, pl) -> {
+            otherPlayers.remove(pl.entityId);
         });
 
         // Do NOT handle PlayerJoinPacket on client (only server)
     }
 
+    // Sends the local player's pose over UDP if it changed since the last send and a tick has passed.
+    // The pose it settles on is sent twice, so one lost datagram doesn't leave it stale on the server
+    private void sendMove(Client client) {
+        long now = System.nanoTime();
+        if (entityId == 0 || now - lastMoveSendTime < MOVE_SEND_INTERVAL_NS) return;
+        EntityMovePacket move = new EntityMovePacket(entityId, moveSequence + 1,
+            localPlayer.getX(), localPlayer.getY(), localPlayer.getZ(), camYaw, camPitch);
+        boolean same = move.samePose(lastMoveSent);
+        if (same && lastMoveRepeated) return;
+        lastMoveRepeated = same;
+        moveSequence = move.sequence;
+        lastMoveSendTime = now;
+        lastMoveSent = move;
+        client.sendUDP(move);
+    }
+
     public void loadAllTexturesFromRegistry() {
         for (BlockRegistry.BlockInfo info : blockRegistry.getAllBlockInfos()) {
             if (info.textureTop != null)
@@ -4,6 +4,7 @@ import engine.client.common.Player;
 import engine.common.block.BlockRegistry;
 import engine.common.block.Material;
 import engine.common.world.Chunk;
+import engine.common.world.ChunkSection;
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL20;
 
@@ -11,7 +12,7 @@ import java.nio.FloatBuffer;
 import java.util.*;
 
 public class VoxelRenderer {
-    private static final int VIEW_DISTANCE = 4;
+    static final int VIEW_DISTANCE = 4;
 
     private final WorldView world;
     private final BlockRegistry blockRegistry;
@@ -21,6 +22,8 @@ public class VoxelRenderer {
     private final Map<String, AnimationInfo> animatedTextures = new HashMap<>();
     private final Map<String, Integer> animationFrames = new HashMap<>();
     private final Map<Chunk, Map<String, Integer>> chunkAnimatedFrame = new HashMap<>();
+    // Chunk version each mesh was built from; block updates from the server bump it
+    private final Map<Chunk, Long> chunkMeshVersion = new HashMap<>();
 
     private ShaderProgram shader;
 
@@ -88,42 +91,52 @@ public class VoxelRenderer {
         // Free old meshes
         Map<String, ChunkMesh> old = chunkMeshesByTexture.remove(chunk);
         if (old != null) old.values().forEach(ChunkMesh::free);
-
-        Map<String, FloatBuffer> buffers = new HashMap<>();
+        chunkMeshVersion.put(chunk, chunk.getVersion());
+
+        // Per-texture state is resolved once per rebuild and indexed by registry texture index
+        int textureCount = blockRegistry.getTextureCount();
+        FloatBuffer[] buffers = new FloatBuffer[textureCount];
+        float[] uMaxs = new float[textureCount], vMins = new float[textureCount], vMaxs = new float[textureCount];
+        for (int t = 0; t < textureCount; t++) {
+            AnimationInfo anim = animatedTextures.get(blockRegistry.getTextureName(t));
+            if (anim != null) {
+                int frameIdx = animationFrames.getOrDefault(blockRegistry.getTextureName(t), 0);
+                uMaxs[t] = (float) anim.frameWidth / anim.texWidth;
+                vMins[t] = (float) (frameIdx * anim.frameHeight) / anim.texHeight;
+                vMaxs[t] = (float) ((frameIdx + 1) * anim.frameHeight) / anim.texHeight;
+            } else {
+                uMaxs[t] = 1f;
+                vMins[t] = 0f;
+                vMaxs[t] = 1f;
+            }
+        }
         int baseX = chunk.getX() * Chunk.SIZE;
-        int baseY = chunk.getY() * Chunk.SIZE;
+        int baseY = chunk.getY() * Chunk.HEIGHT;
         int baseZ = chunk.getZ() * Chunk.SIZE;
 
-        for (int x = 0; x < Chunk.SIZE; x++) {
-            for (int y = 0; y < Chunk.SIZE; y++) {
-                for (int z = 0; z < Chunk.SIZE; z++) {
-                    Material type = chunk.getBlock(x, y, z).getType();
-                    if (type == Material.AIR) continue;
-
-                    BlockRegistry.BlockInfo info = blockRegistry.getInfo(type);
-                    for (Face face : Face.values()) {
-                        String textureName = switch (face) {
-                            case TOP -> info.textureTop;
-                            case BOTTOM -> info.textureBottom;
-                            default -> info.textureSide;
-                        };
-                        if (textureName == null) continue;
-                        if (!shouldRenderFace(chunk, x, y, z, face, type)) continue;
-
-                        FloatBuffer buf = buffers.computeIfAbsent(
-                                textureName, k -> BufferUtils.createFloatBuffer(1024 * 1024));
-
-                        if (animatedTextures.containsKey(textureName)) {
-                            AnimationInfo anim = animatedTextures.get(textureName);
-                            int frameIdx = animationFrames.getOrDefault(textureName, 0);
-
-                            float uMax = (float) anim.frameWidth / anim.texWidth;
-                            float vMin = (float) (frameIdx * anim.frameHeight) / anim.texHeight;
-                            float vMax = (float) ((frameIdx + 1) * anim.frameHeight) / anim.texHeight;
-
-                            putFace(buf, baseX + x, baseY + y, baseZ + z, face, 0f, uMax, vMin, vMax);
-                        } else {
-                            putFace(buf, baseX + x, baseY + y, baseZ + z, face, 0f, 1f, 0f, 1f);
+        for (int s = 0; s < Chunk.SECTIONS; s++) {
+            if (chunk.isSectionEmpty(s)) continue;
+            int minY = s * ChunkSection.SIZE;
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                for (int y = minY; y < minY + ChunkSection.SIZE; y++) {
+                    for (int z = 0; z < Chunk.SIZE; z++) {
+                        Material type = chunk.getMaterial(x, y, z);
+                        if (type == Material.AIR) continue;
+
+                        BlockRegistry.BlockInfo info = blockRegistry.getInfo(type.getId());
+                        for (Face face : Face.values()) {
+                            int texture = switch (face) {
+                                case TOP -> info.textureTopIndex;
+                                case BOTTOM -> info.textureBottomIndex;
+                                default -> info.textureSideIndex;
+                            };
+                            if (texture < 0) continue;
+                            if (!shouldRenderFace(chunk, x, y, z, face, info)) continue;
+
+                            FloatBuffer buf = buffers[texture];
+                            if (buf == null) buf = buffers[texture] = BufferUtils.createFloatBuffer(1024 * 1024);
+
+                            putFace(buf, baseX + x, baseY + y, baseZ + z, face, 0f, uMaxs[texture], vMins[texture], vMaxs[texture]);
                         }
                     }
                 }
@@ -131,8 +144,9 @@ public class VoxelRenderer {
         }
 
         Map<String, ChunkMesh> meshes = new HashMap<>();
-        for (var entry : buffers.entrySet()) {
-            FloatBuffer buf = entry.getValue();
+        for (int t = 0; t < textureCount; t++) {
+            FloatBuffer buf = buffers[t];
+            if (buf == null) continue;
             buf.flip();
             ChunkMesh mesh = new ChunkMesh();
             mesh.vertexCount = buf.limit() / 5;
@@ -141,7 +155,7 @@ public class VoxelRenderer {
             GL20.glBindBuffer(GL20.GL_ARRAY_BUFFER, mesh.vboId);
             GL20.glBufferData(GL20.GL_ARRAY_BUFFER, buf, GL20.GL_STATIC_DRAW);
             GL20.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
-            meshes.put(entry.getKey(), mesh);
+            meshes.put(blockRegistry.getTextureName(t), mesh);
         }
         chunkMeshesByTexture.put(chunk, meshes);
     }
@@ -150,6 +164,7 @@ public class VoxelRenderer {
         Map<String, ChunkMesh> old = chunkMeshesByTexture.remove(chunk);
         if (old != null) old.values().forEach(ChunkMesh::free);
         chunkAnimatedFrame.remove(chunk);
+        chunkMeshVersion.remove(chunk);
     }
 
     // === Rendering ===
@@ -162,7 +177,7 @@ public class VoxelRenderer {
         }
 
         int playerChunkX = (int) Math.floor(player.getX() / Chunk.SIZE);
-        int playerChunkY = (int) Math.floor(player.getY() / Chunk.SIZE);
+        int playerChunkY = (int) Math.floor(player.getY() / Chunk.HEIGHT);
         int playerChunkZ = (int) Math.floor(player.getZ() / Chunk.SIZE);
 
         Collection<Chunk> chunksInView = world.getChunks();
@@ -200,7 +215,7 @@ public class VoxelRenderer {
             }
 
             Map<String, ChunkMesh> texMeshes = chunkMeshesByTexture.get(chunk);
-            if (needsRebuild || texMeshes == null) {
+            if (needsRebuild || texMeshes == null || chunkMeshVersion.getOrDefault(chunk, -1L) != chunk.getVersion()) {
                 rebuildChunkMeshes(chunk);
                 texMeshes = chunkMeshesByTexture.get(chunk);
             }
@@ -274,29 +289,28 @@ public class VoxelRenderer {
     }
 
     // === Neighbor Check ===
-    private boolean shouldRenderFace(Chunk chunk, int x, int y, int z, Face face, Material type) {
+    private boolean shouldRenderFace(Chunk chunk, int x, int y, int z, Face face, BlockRegistry.BlockInfo info) {
         int nx = x + face.dx, ny = y + face.dy, nz = z + face.dz;
 
         Material neighborType;
-        if (nx >= 0 && nx < Chunk.SIZE && ny >= 0 && ny < Chunk.SIZE && nz >= 0 && nz < Chunk.SIZE) {
-            neighborType = chunk.getBlock(nx, ny, nz).getType();
+        if (nx >= 0 && nx < Chunk.SIZE && ny >= 0 && ny < Chunk.HEIGHT && nz >= 0 && nz < Chunk.SIZE) {
+            neighborType = chunk.getMaterial(nx, ny, nz);
         } else {
             Chunk neighborChunk = world.getChunk(
-                chunk.getX() + Integer.signum(nx / Chunk.SIZE),
-                chunk.getY() + Integer.signum(ny / Chunk.SIZE),
-                chunk.getZ() + Integer.signum(nz / Chunk.SIZE)
+                chunk.getX() + Math.floorDiv(nx, Chunk.SIZE),
+                chunk.getY() + Math.floorDiv(ny, Chunk.HEIGHT),
+                chunk.getZ() + Math.floorDiv(nz, Chunk.SIZE)
             );
             if (neighborChunk == null) return true; // Neighbor chunk not loaded → render
-            int bx = (nx + Chunk.SIZE) % Chunk.SIZE;
-            int by = (ny + Chunk.SIZE) % Chunk.SIZE;
-            int bz = (nz + Chunk.SIZE) % Chunk.SIZE;
-            neighborType = neighborChunk.getBlock(bx, by, bz).getType();
+            int bx = Math.floorMod(nx, Chunk.SIZE);
+            int by = Math.floorMod(ny, Chunk.HEIGHT);
+            int bz = Math.floorMod(nz, Chunk.SIZE);
+            neighborType = neighborChunk.getMaterial(bx, by, bz);
         }
 
-        return (type == Material.WATER) ? neighborType == Material.AIR : isTransparent(neighborType);
-    }
-
-    private boolean isTransparent(Material material) {
-        return material == Material.AIR || material == Material.WATER;
+        int neighborId = neighborType.getId();
+        // Liquids only show a surface against non-liquid see-through blocks
+        if (info.liquid) return blockRegistry.isTransparent(neighborId) && !blockRegistry.isLiquid(neighborId);
+        return blockRegistry.isTransparent(neighborId);
     }
 }
@@ -1,22 +1,39 @@
 package engine.client;
 
 import java.util.Collection;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 import engine.common.block.Block;
+import engine.common.util.Long2ObjectHashMap;
 import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
 
 public class WorldView {
-    private Map<String, Chunk> chunks = new ConcurrentHashMap<>();
+    private final Long2ObjectHashMap<Chunk> chunks = new Long2ObjectHashMap<>(256);
+    // Chunks dropped or replaced off the render thread; their meshes are freed on the render thread
+    private final Queue<Chunk> removed = new ConcurrentLinkedQueue<>();
 
     public void setChunk(Chunk chunk) {
-        String key = chunk.getX() + "," + chunk.getY() + "," + chunk.getZ();
-        chunks.put(key, chunk);
+        Chunk previous = chunks.put(ChunkPos.of(chunk), chunk);
+        if (previous != null) removed.add(previous);
+    }
+    /** Drops every chunk farther than {@code radius} chunks from (centerX, centerZ) on either axis. */
+    public void unloadOutside(int centerX, int centerZ, int radius) {
+        chunks.forEach((key, chunk) -> {
+            if (Math.abs(ChunkPos.getX(key) - centerX) > radius || Math.abs(ChunkPos.getZ(key) - centerZ) > radius) {
+                if (chunks.remove(key, chunk)) removed.add(chunk);
+            }
+        });
+    }
+    /** Hands every dropped chunk to {@code onRemoved}; call from the render thread. */
+    public void drainRemoved(Consumer<Chunk> onRemoved) {
+        Chunk chunk;
+        while ((chunk = removed.poll()) != null) onRemoved.accept(chunk);
     }
     public Chunk getChunk(int x, int y, int z) {
-        String key = x + "," + y + "," + z;
-        return chunks.get(key);
+        return chunks.get(ChunkPos.pack(x, y, z));
     }
     // Other view-only methods; NO generation or saving
 	public Collection<Chunk> getChunks() {
@@ -25,12 +42,12 @@ public class WorldView {
 	}
 	public Block getBlock(int x, int y, int z) {
 	    int chunkX = x >> 4;
-	    int chunkY = y >> 4;
+	    int chunkY = Math.floorDiv(y, Chunk.HEIGHT);
 	    int chunkZ = z >> 4;
 	    Chunk chunk = getChunk(chunkX, chunkY, chunkZ);
 	    if (chunk == null) return null;
 	    int localX = x & 15;
-	    int localY = y & 15;
+	    int localY = Math.floorMod(y, Chunk.HEIGHT);
 	    int localZ = z & 15;
 	    return chunk.getBlock(localX, localY, localZ);
 	}
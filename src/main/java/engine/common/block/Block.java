@@ -1,12 +1,22 @@
 package engine.common.block;
 
-public class Block {
-    private Material type;
-    public Block(Material type) { this.type = type; }
+/**
+ * Immutable block state. One shared instance exists per material; use {@link #of(Material)}.
+ */
+public final class Block {
+    private static final Block[] BY_MATERIAL = new Block[Material.values().length];
+    static {
+        for (Material m : Material.values()) BY_MATERIAL[m.ordinal()] = new Block(m);
+    }
+
+    private final Material type;
+    private Block(Material type) { this.type = type; }
+    public static Block of(Material type) { return BY_MATERIAL[type.ordinal()]; }
     public Material getType() { return type; }
-    public void setType(Material type) { this.type = type; }
-	public boolean isSolid() {
-		if (this.type == Material.AIR) return false;
-		return true;
-	}
-}
\ No newline at end of file
+
+    // Flags of the built-in blocks; code holding a BlockRegistry should ask it instead
+    private static final BlockRegistry DEFAULTS = BlockRegistry.createDefault();
+
+    /** Whether the built-in registry flags this block solid; liquids and air are not. */
+    public boolean isSolid() { return DEFAULTS.isSolid(type.getId()); }
+}
@@ -3,6 +3,12 @@ package engine.common.block;
 import java.util.*;
 
 public class BlockRegistry {
+    // Property flags, precomputed per block id
+    public static final int SOLID = 1;
+    public static final int OPAQUE = 2;
+    public static final int TRANSPARENT = 4;
+    public static final int LIQUID = 8;
+
     public static class BlockInfo {
         public final Material id;
         public final String name;
@@ -12,39 +18,96 @@ public class BlockRegistry {
         public final String textureSide;
         public final String textureBottom;
 
+        // Dense per-face texture indices into the registry's texture table, -1 for none
+        public final int textureTopIndex;
+        public final int textureSideIndex;
+        public final int textureBottomIndex;
+
+        public final boolean solid;
+        public final boolean opaque;
+        public final boolean transparent;
+        public final boolean liquid;
+
         // Constructor for single-texture blocks
         public BlockInfo(Material id, String name, String texture) {
             this(id, name, texture, texture, texture);
         }
         // Constructor for multi-texture blocks
         public BlockInfo(Material id, String name, String textureTop, String textureSide, String textureBottom) {
+            this(id, name, textureTop, textureSide, textureBottom, defaultFlags(textureTop), -1, -1, -1);
+        }
+
+        BlockInfo(Material id, String name, String textureTop, String textureSide, String textureBottom,
+                  int flags, int textureTopIndex, int textureSideIndex, int textureBottomIndex) {
             this.id = id;
             this.name = name;
 
             this.textureTop = textureTop;
             this.textureSide = textureSide;
             this.textureBottom = textureBottom;
+
+            this.textureTopIndex = textureTopIndex;
+            this.textureSideIndex = textureSideIndex;
+            this.textureBottomIndex = textureBottomIndex;
+
+            this.solid = (flags & SOLID) != 0;
+            this.opaque = (flags & OPAQUE) != 0;
+            this.transparent = (flags & TRANSPARENT) != 0;
+            this.liquid = (flags & LIQUID) != 0;
         }
     }
 
     private final Map<Material, BlockInfo> idMap = new HashMap<>();
     private final Map<String, BlockInfo> nameMap = new HashMap<>();
+    private BlockInfo[] byId = new BlockInfo[0];
+    private final List<String> textureNames = new ArrayList<>();
+    private final Map<String, Integer> textureIndices = new HashMap<>();
+
+    // Blocks without a texture (air) are see-through, everything else is a full solid cube
+    private static int defaultFlags(String texture) {
+        return texture == null ? TRANSPARENT : SOLID | OPAQUE;
+    }
 
     // Register block with single texture for all faces
     public void register(Material id, String name, String texture) {
-        BlockInfo info = new BlockInfo(id, name, texture);
-        idMap.put(id, info);
-        nameMap.put(name, info);
+        register(id, name, texture, texture, texture, defaultFlags(texture));
     }
     // Register block with separate textures for top, side, bottom
     public void register(Material id, String name, String textureTop, String textureSide, String textureBottom) {
-        BlockInfo info = new BlockInfo(id, name, textureTop, textureSide, textureBottom);
+        register(id, name, textureTop, textureSide, textureBottom, defaultFlags(textureTop));
+    }
+    // Register block with separate textures and explicit property flags
+    public void register(Material id, String name, String textureTop, String textureSide, String textureBottom, int flags) {
+        BlockInfo info = new BlockInfo(id, name, textureTop, textureSide, textureBottom, flags,
+                textureIndex(textureTop), textureIndex(textureSide), textureIndex(textureBottom));
         idMap.put(id, info);
         nameMap.put(name, info);
+        if (id.getId() >= byId.length) byId = Arrays.copyOf(byId, id.getId() + 1);
+        byId[id.getId()] = info;
+    }
+
+    private int textureIndex(String texture) {
+        if (texture == null) return -1;
+        Integer index = textureIndices.get(texture);
+        if (index == null) {
+            index = textureNames.size();
+            textureNames.add(texture);
+            textureIndices.put(texture, index);
+        }
+        return index;
     }
 
-    public BlockInfo getInfo(Material id) { return idMap.get(id); }
+    public BlockInfo getInfo(Material id) { return getInfo(id.getId()); }
     public BlockInfo getInfo(String name) { return nameMap.get(name); }
+    public BlockInfo getInfo(int id) { return id >= 0 && id < byId.length ? byId[id] : null; }
+
+    public boolean isSolid(int id) { BlockInfo info = getInfo(id); return info != null && info.solid; }
+    public boolean isOpaque(int id) { BlockInfo info = getInfo(id); return info != null && info.opaque; }
+    public boolean isTransparent(int id) { BlockInfo info = getInfo(id); return info == null || info.transparent; }
+    public boolean isLiquid(int id) { BlockInfo info = getInfo(id); return info != null && info.liquid; }
+
+    public int getTextureCount() { return textureNames.size(); }
+    public String getTextureName(int index) { return textureNames.get(index); }
 
     public static BlockRegistry createDefault() {
         BlockRegistry reg = new BlockRegistry();
@@ -56,13 +119,13 @@ public class BlockRegistry {
         reg.register(Material.DIRT, "dirt", "dirt.png");
         // stone: all faces "stone.png"
         reg.register(Material.STONE, "stone", "stone.png");
-        
+
         reg.register(Material.SAND, "sand", "sand.png");
-        
-        reg.register(Material.WATER, "water", "water_still.png", "water_still.png", "water_still.png");
+
+        reg.register(Material.WATER, "water", "water_still.png", "water_still.png", "water_still.png", TRANSPARENT | LIQUID);
         return reg;
     }
     public Collection<BlockInfo> getAllBlockInfos() {
         return idMap.values();
     }
-}
\ No newline at end of file
+}
@@ -9,16 +9,22 @@ public enum Material {
     WATER(5);
 	
 	private final int id;
+	// Dense id -> material table, so decoding a stored byte is a single array read
+	private static final Material[] BY_ID;
+	static {
+		int max = 0;
+		for (Material m : values()) max = Math.max(max, m.id);
+		BY_ID = new Material[max + 1];
+		for (Material m : values()) BY_ID[m.id] = m;
+	}
 	
 	Material(int id) {
         this.id = id;
     }
 	
 	public static Material fromId(int id) {
-        for (Material m : values()) {
-            if (m.id == id) return m;
-        }
-        return AIR; // fallback if unknown
+        if (id < 0 || id >= BY_ID.length || BY_ID[id] == null) return AIR; // fallback if unknown
+        return BY_ID[id];
     }
 	
 	public int getId() {
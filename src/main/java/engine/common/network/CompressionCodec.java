@@ -0,0 +1,221 @@
+package engine.common.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * zlib compression for chunk payloads with one Deflater/Inflater and scratch buffer per
+ * thread, so nothing but the result array is allocated per call and no native zlib
+ * state is left behind for the finalizer.
+ *
+ * An optional preset dictionary, such as one trained by {@code ChunkDictionaryTrainer},
+ * helps small payloads the most. Streams record whether they used it, so data written
+ * without a dictionary always decompresses, and data written with one needs the same
+ * dictionary on the reading side.
+ */
+public final class CompressionCodec {
+    private static final int MIN_SCRATCH = 64 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final CompressionCodec DEFAULT = new CompressionCodec(
+        Integer.getInteger("voxel.compressionLevel", Deflater.DEFAULT_COMPRESSION),
+        loadDictionary(System.getProperty("voxel.compressionDictionary")));
+    // Region files must stay readable without any external file, so they never use the dictionary
+    private static final CompressionCodec STORAGE = new CompressionCodec(
+        Integer.getInteger("voxel.compressionLevel", Deflater.DEFAULT_COMPRESSION), null);
+
+    private final int level;
+    private final byte[] dictionary;
+    private final int dictionaryId;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters;
+    // Per thread: output scratch, then a copy of input held in a direct buffer
+    private final ThreadLocal<byte[][]> scratch = ThreadLocal.withInitial(() -> new byte[][] { new byte[MIN_SCRATCH], EMPTY });
+
+    /** {@code dictionary} may be null; zlib uses at most its last 32 KB. */
+    public CompressionCodec(int level, byte[] dictionary) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+            throw new IllegalArgumentException("Bad compression level " + level);
+        this.level = level;
+        this.dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary.clone();
+        this.dictionaryId = this.dictionary == null ? 0 : adler32(this.dictionary);
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+        this.inflaters = ThreadLocal.withInitial(Inflater::new);
+    }
+
+    /** Wire codec, configured by {@code voxel.compressionLevel} and {@code voxel.compressionDictionary}. */
+    public static CompressionCodec getDefault() {
+        return DEFAULT;
+    }
+
+    /** Same level as the default codec but never a dictionary, for data kept on disk. */
+    public static CompressionCodec getStorage() {
+        return STORAGE;
+    }
+
+    public int getLevel() { return level; }
+    public boolean hasDictionary() { return dictionary != null; }
+
+    /** Upper bound of the compressed size of {@code length} bytes (zlib's compressBound plus its header). */
+    public static int maxCompressedLength(int length) {
+        return length + (length >>> 12) + (length >>> 14) + (length >>> 25) + 13 + 6;
+    }
+
+    public byte[] compress(byte[] data) {
+        return compress(data, 0, data.length);
+    }
+
+    public byte[] compress(byte[] data, int offset, int length) {
+        byte[] out = scratch(0, maxCompressedLength(length));
+        int n = deflate(data, offset, length, out, 0, out.length);
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Compresses the remaining bytes of {@code in} into {@code out}, advancing both; returns
+     * the compressed size. Throws BufferOverflowException, without moving either position,
+     * if the result does not fit; {@link #maxCompressedLength} always does.
+     */
+    public int compress(ByteBuffer in, ByteBuffer out) {
+        int length = in.remaining();
+        byte[] src = input(in);
+        int srcOffset = inputOffset(in);
+        int n;
+        if (out.hasArray()) {
+            n = deflate(src, srcOffset, length, out.array(), out.arrayOffset() + out.position(), out.remaining());
+            out.position(out.position() + n);
+        } else {
+            byte[] tmp = scratch(0, maxCompressedLength(length));
+            n = deflate(src, srcOffset, length, tmp, 0, Math.min(tmp.length, out.remaining()));
+            out.put(tmp, 0, n);
+        }
+        in.position(in.position() + length);
+        return n;
+    }
+
+    private int deflate(byte[] data, int offset, int length, byte[] out, int outOffset, int outLength) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (dictionary != null) deflater.setDictionary(dictionary);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        int n = 0;
+        while (!deflater.finished()) {
+            if (n == outLength) throw new BufferOverflowException();
+            n += deflater.deflate(out, outOffset + n, outLength - n);
+        }
+        // Drop the reference to the caller's array
+        deflater.setInput(EMPTY);
+        return n;
+    }
+
+    public byte[] decompress(byte[] data) throws DataFormatException {
+        return decompress(data, 0, data.length);
+    }
+
+    public byte[] decompress(byte[] data, int offset, int length) throws DataFormatException {
+        Inflater inflater = start(data, offset, length);
+        byte[][] holder = scratch.get();
+        int n = 0;
+        while (!inflater.finished()) {
+            if (n == holder[0].length) holder[0] = Arrays.copyOf(holder[0], holder[0].length * 2);
+            n += inflate(inflater, holder[0], n, holder[0].length - n);
+        }
+        inflater.setInput(EMPTY);
+        return Arrays.copyOf(holder[0], n);
+    }
+
+    /**
+     * Decompresses the remaining bytes of {@code in} into {@code out}, advancing both; returns
+     * the number of bytes produced. Throws BufferOverflowException if {@code out} is too small.
+     */
+    public int decompress(ByteBuffer in, ByteBuffer out) throws DataFormatException {
+        int length = in.remaining();
+        byte[] src = input(in);
+        int srcOffset = inputOffset(in);
+        Inflater inflater = start(src, srcOffset, length);
+        int n = 0;
+        if (out.hasArray()) {
+            byte[] dst = out.array();
+            int dstOffset = out.arrayOffset() + out.position();
+            while (!inflater.finished()) {
+                if (n == out.remaining()) throw new BufferOverflowException();
+                n += inflate(inflater, dst, dstOffset + n, out.remaining() - n);
+            }
+            out.position(out.position() + n);
+        } else {
+            byte[] tmp = scratch(0, Math.min(out.remaining(), MIN_SCRATCH));
+            ByteBuffer target = out.duplicate();
+            while (!inflater.finished()) {
+                if (!target.hasRemaining()) throw new BufferOverflowException();
+                int k = inflate(inflater, tmp, 0, Math.min(tmp.length, target.remaining()));
+                target.put(tmp, 0, k);
+                n += k;
+            }
+            out.position(out.position() + n);
+        }
+        in.position(in.position() + inflater.getTotalIn());
+        inflater.setInput(EMPTY);
+        return n;
+    }
+
+    private Inflater start(byte[] data, int offset, int length) {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(data, offset, length);
+        return inflater;
+    }
+
+    private int inflate(Inflater inflater, byte[] out, int offset, int length) throws DataFormatException {
+        int n = inflater.inflate(out, offset, length);
+        if (n == 0 && inflater.needsDictionary()) {
+            if (dictionary == null || inflater.getAdler() != dictionaryId)
+                throw new DataFormatException("Compressed data needs a preset dictionary this codec does not have");
+            inflater.setDictionary(dictionary);
+            return inflate(inflater, out, offset, length);
+        }
+        if (n == 0 && inflater.needsInput() && !inflater.finished()) throw new DataFormatException("Truncated compressed data");
+        return n;
+    }
+
+    private byte[] scratch(int slot, int size) {
+        byte[][] holder = scratch.get();
+        if (holder[slot].length < size) holder[slot] = new byte[Math.max(size, holder[slot].length * 2)];
+        return holder[slot];
+    }
+
+    // Heap buffers are used in place; direct ones are copied out since Deflater/Inflater take arrays on Java 8
+    private byte[] input(ByteBuffer in) {
+        if (in.hasArray()) return in.array();
+        byte[] src = scratch(1, in.remaining());
+        in.duplicate().get(src, 0, in.remaining());
+        return src;
+    }
+
+    private static int inputOffset(ByteBuffer in) {
+        return in.hasArray() ? in.arrayOffset() + in.position() : 0;
+    }
+
+    private static int adler32(byte[] data) {
+        Adler32 adler = new Adler32();
+        adler.update(data, 0, data.length);
+        return (int) adler.getValue();
+    }
+
+    private static byte[] loadDictionary(String path) {
+        if (path == null || path.isEmpty()) return null;
+        try {
+            return Files.readAllBytes(new File(path).toPath());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read compression dictionary " + path, e);
+        }
+    }
+}
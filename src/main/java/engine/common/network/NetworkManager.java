@@ -1,35 +1,48 @@
 package engine.common.network;
 
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
+import java.util.zip.DataFormatException;
 
 import com.esotericsoftware.kryonet.*;
 
 import engine.common.network.packet.BlockUpdatePacket;
 import engine.common.network.packet.ChunkDataPacket;
+import engine.common.network.packet.EntityMovePacket;
+import engine.common.network.packet.MultiBlockChangePacket;
 import engine.common.network.packet.PlayerChatPacket;
+import engine.common.network.packet.PlayerEnterViewPacket;
+import engine.common.network.packet.PlayerJoinAckPacket;
 import engine.common.network.packet.PlayerJoinPacket;
-import engine.common.network.packet.PlayerMovePacket;
+import engine.common.network.packet.PlayerLeaveViewPacket;
+import engine.common.network.packet.SectionDataPacket;
 
 public class NetworkManager {
+    /** KryoNet per-connection write buffer; a single packet must fit in it. */
+    public static final int WRITE_BUFFER_SIZE = 32768;
+    private static final int OBJECT_BUFFER_SIZE = 32768;
     private Server server;
     private Client client;
     public void registerPackets(EndPoint endPoint) {
-        endPoint.getKryo().register(PlayerMovePacket.class);
         endPoint.getKryo().register(BlockUpdatePacket.class);
         endPoint.getKryo().register(PlayerJoinPacket.class);
         endPoint.getKryo().register(PlayerChatPacket.class);
         endPoint.getKryo().register(ChunkDataPacket.class);
         endPoint.getKryo().register(byte[].class); 
+        endPoint.getKryo().register(short[].class);
+        endPoint.getKryo().register(MultiBlockChangePacket.class);
+        endPoint.getKryo().register(SectionDataPacket.class);
+        endPoint.getKryo().register(PlayerEnterViewPacket.class);
+        endPoint.getKryo().register(PlayerLeaveViewPacket.class);
+        endPoint.getKryo().register(PlayerJoinAckPacket.class);
+        endPoint.getKryo().register(EntityMovePacket.class);
     }
     public void startServer(int tcpPort, int udpPort) throws Exception {
-        server = new Server(32768, 32768);
+        server = new Server(WRITE_BUFFER_SIZE, OBJECT_BUFFER_SIZE);
         registerPackets(server);
         server.start();
         server.bind(tcpPort, udpPort);
     }
     public void startClient(String host, int tcpPort, int udpPort) throws Exception {
-        client = new Client(32768, 32768);
+        client = new Client(WRITE_BUFFER_SIZE, OBJECT_BUFFER_SIZE);
         registerPackets(client);
         client.start();
         client.connect(5000, host, tcpPort, udpPort);
@@ -37,24 +50,12 @@ public class NetworkManager {
     public Server getServer() { return server; }
     public Client getClient() { return client; }
     
+    /** Compresses with the {@link CompressionCodec#getDefault() wire codec}. */
     public static byte[] compress(byte[] data) {
-        Deflater deflater = new Deflater();
-        deflater.setInput(data);
-        deflater.finish();
-        byte[] buffer = new byte[32768];
-        int compressedSize = deflater.deflate(buffer);
-        byte[] output = new byte[compressedSize];
-        System.arraycopy(buffer, 0, output, 0, compressedSize);
-        return output;
+        return CompressionCodec.getDefault().compress(data);
     }
 
-    public static byte[] decompress(byte[] data) throws Exception {
-        Inflater inflater = new Inflater();
-        inflater.setInput(data);
-        byte[] buffer = new byte[32768];
-        int decompressedSize = inflater.inflate(buffer);
-        byte[] output = new byte[decompressedSize];
-        System.arraycopy(buffer, 0, output, 0, decompressedSize);
-        return output;
+    public static byte[] decompress(byte[] data) throws DataFormatException {
+        return CompressionCodec.getDefault().decompress(data);
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package engine.common.network.packet;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoSerializable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Position and look of one player, sent over UDP by its client and relayed by the
+ * server to the players that have it in view. Positions are fixed point in
+ * 1/{@link #POSITION_SCALE} block and angles one byte per 360 degrees, so a typical
+ * packet is 10-12 bytes on the wire. Packets can arrive late or out of order; a
+ * packet whose 16-bit {@link #sequence} is not newer than the last one applied for
+ * that entity is dropped.
+ */
+public class EntityMovePacket implements KryoSerializable {
+    public static final float POSITION_SCALE = 32f;
+    private static final float ANGLE_SCALE = 256f / 360f;
+
+    /** Id assigned by the server at join, see {@link PlayerJoinAckPacket}. */
+    public int entityId;
+    public int sequence;
+    public int x, y, z;
+    public byte yaw, pitch;
+
+    public EntityMovePacket() {}
+
+    public EntityMovePacket(int entityId, int sequence, float x, float y, float z, float yaw, float pitch) {
+        this.entityId = entityId;
+        this.sequence = sequence & 0xFFFF;
+        this.x = quantize(x);
+        this.y = quantize(y);
+        this.z = quantize(z);
+        this.yaw = (byte) Math.round(yaw * ANGLE_SCALE);
+        this.pitch = (byte) Math.round(pitch * ANGLE_SCALE);
+    }
+
+    public float getX() { return x / POSITION_SCALE; }
+    public float getY() { return y / POSITION_SCALE; }
+    public float getZ() { return z / POSITION_SCALE; }
+    public float getYaw() { return yaw / ANGLE_SCALE; }
+    public float getPitch() { return pitch / ANGLE_SCALE; }
+
+    /** True if both packets carry the same quantized position and look. */
+    public boolean samePose(EntityMovePacket other) {
+        return other != null && x == other.x && y == other.y && z == other.z && yaw == other.yaw && pitch == other.pitch;
+    }
+
+    /** True if {@code sequence} comes after {@code last}, allowing for wraparound. */
+    public static boolean isNewer(int sequence, int last) {
+        return (short) (sequence - last) > 0;
+    }
+
+    private static int quantize(float coordinate) {
+        return Math.round(coordinate * POSITION_SCALE);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output) {
+        output.writeVarInt(entityId, true);
+        output.writeShort(sequence);
+        output.writeVarInt(x, false);
+        output.writeVarInt(y, false);
+        output.writeVarInt(z, false);
+        output.writeByte(yaw);
+        output.writeByte(pitch);
+    }
+
+    @Override
+    public void read(Kryo kryo, Input input) {
+        entityId = input.readVarInt(true);
+        sequence = input.readShortUnsigned();
+        x = input.readVarInt(false);
+        y = input.readVarInt(false);
+        z = input.readVarInt(false);
+        yaw = input.readByte();
+        pitch = input.readByte();
+    }
+}
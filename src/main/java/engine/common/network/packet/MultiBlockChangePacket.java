@@ -0,0 +1,29 @@
+package engine.common.network.packet;
+
+/**
+ * Every block changed in one chunk section during a server tick. Positions are packed
+ * within the section as {@code (y << 8) | (z << 4) | x}; {@code ids[i]} is the material
+ * id now at {@code positions[i]}.
+ */
+public class MultiBlockChangePacket {
+    public int chunkX, chunkY, chunkZ;
+    public int section;
+    public short[] positions;
+    public byte[] ids;
+
+    public MultiBlockChangePacket() {}
+
+    public MultiBlockChangePacket(int chunkX, int chunkY, int chunkZ, int section, short[] positions, byte[] ids) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+        this.section = section;
+        this.positions = positions;
+        this.ids = ids;
+    }
+
+    public static short pack(int x, int y, int z) { return (short) ((y << 8) | (z << 4) | x); }
+    public static int getX(short position) { return position & 15; }
+    public static int getY(short position) { return (position >> 8) & 15; }
+    public static int getZ(short position) { return (position >> 4) & 15; }
+}
@@ -0,0 +1,9 @@
+package engine.common.network.packet;
+/** Another player came within view; followed by {@link EntityMovePacket}s with its id while it stays there. */
+public class PlayerEnterViewPacket {
+    public int entityId;
+    public String playerId;
+    /** Sequence of the last move applied, so older moves still in flight are dropped. */
+    public int sequence;
+    public float x, y, z, yaw, pitch;
+}
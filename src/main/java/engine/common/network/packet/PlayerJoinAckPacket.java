@@ -0,0 +1,9 @@
+package engine.common.network.packet;
+/**
+ * Server's reply to {@link PlayerJoinPacket}: the id that tags this player's {@link EntityMovePacket}s,
+ * and the chunk radius the server streams around it, so the client keeps at least that much.
+ */
+public class PlayerJoinAckPacket {
+    public int entityId;
+    public int viewRadius;
+}
@@ -0,0 +1,5 @@
+package engine.common.network.packet;
+/** A player announced by {@link PlayerEnterViewPacket} left the view or the server. */
+public class PlayerLeaveViewPacket {
+    public int entityId;
+}
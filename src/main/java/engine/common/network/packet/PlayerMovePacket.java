@@ -1,5 +0,0 @@
-package engine.common.network.packet;
-public class PlayerMovePacket {
-    public String playerId;
-    public float x, y, z, yaw, pitch;
-}
\ No newline at end of file
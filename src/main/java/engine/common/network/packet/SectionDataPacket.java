@@ -0,0 +1,18 @@
+package engine.common.network.packet;
+
+/** Whole contents of one chunk section, sent instead of a {@link MultiBlockChangePacket} when most of it changed. */
+public class SectionDataPacket {
+    public int chunkX, chunkY, chunkZ;
+    public int section;
+    public byte[] blockTypes; // Compressed ChunkSection.VOLUME material ids in section index order
+
+    public SectionDataPacket() {}
+
+    public SectionDataPacket(int chunkX, int chunkY, int chunkZ, int section, byte[] blockTypes) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+        this.section = section;
+        this.blockTypes = blockTypes;
+    }
+}
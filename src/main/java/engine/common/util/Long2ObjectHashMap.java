@@ -0,0 +1,292 @@
+package engine.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing (linear probing) hash map from primitive long keys to objects.
+ * Keys are never boxed. Writers take an exclusive lock; readers use an optimistic
+ * stamp and only fall back to a read lock if a write raced with them, so lookups
+ * from many threads stay cheap and safe. Null values are not permitted.
+ */
+public class Long2ObjectHashMap<V> {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // Keys and values are swapped together on resize so readers never see a mismatched pair
+    private static final class Table {
+        final long[] keys;
+        final Object[] values; // null marks a free slot
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+    }
+
+    @FunctionalInterface
+    public interface Entry<V> {
+        void accept(long key, V value);
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private Table table;
+    private int size;
+
+    public Long2ObjectHashMap() {
+        this(16);
+    }
+
+    public Long2ObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        table = new Table(capacity);
+    }
+
+    private static int slot(long key, int mask) {
+        // fmix64 from MurmurHash3 spreads packed coordinates across the table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V find(Table t, long key) {
+        int mask = t.keys.length - 1;
+        for (int i = slot(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+            Object value = t.values[i];
+            if (value == null) return null;
+            if (t.keys[i] == key) return (V) value;
+        }
+        return null;
+    }
+
+    public V get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        V value = find(table, key);
+        if (lock.validate(stamp)) return value;
+        stamp = lock.readLock();
+        try {
+            return find(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V put(long key, V value) {
+        if (value == null) throw new NullPointerException("value");
+        long stamp = lock.writeLock();
+        try {
+            return insert(key, value, true);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public V putIfAbsent(long key, V value) {
+        if (value == null) throw new NullPointerException("value");
+        long stamp = lock.writeLock();
+        try {
+            return insert(key, value, false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Atomically returns the existing value or stores the one produced by {@code factory}. */
+    public V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        V existing = get(key);
+        if (existing != null) return existing;
+        long stamp = lock.writeLock();
+        try {
+            existing = find(table, key);
+            if (existing != null) return existing;
+            V value = factory.apply(key);
+            if (value != null) insert(key, value, false);
+            return value;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(long key, V value, boolean replace) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int i = slot(key, mask);
+        while (t.values[i] != null) {
+            if (t.keys[i] == key) {
+                V old = (V) t.values[i];
+                if (replace) t.values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        t.keys[i] = key;
+        t.values[i] = value;
+        if (++size > t.keys.length * LOAD_FACTOR) resize(t.keys.length << 1);
+        return null;
+    }
+
+    private void resize(int capacity) {
+        Table old = table;
+        Table t = new Table(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < old.keys.length; j++) {
+            if (old.values[j] == null) continue;
+            int i = slot(old.keys[j], mask);
+            while (t.values[i] != null) i = (i + 1) & mask;
+            t.keys[i] = old.keys[j];
+            t.values[i] = old.values[j];
+        }
+        table = t;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int mask = t.keys.length - 1;
+            int i = slot(key, mask);
+            while (t.values[i] != null) {
+                if (t.keys[i] == key) {
+                    V old = (V) t.values[i];
+                    shiftBack(t, i);
+                    size--;
+                    return old;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Removes {@code key} only if it is currently mapped to {@code value}. */
+    public boolean remove(long key, Object value) {
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int mask = t.keys.length - 1;
+            int i = slot(key, mask);
+            while (t.values[i] != null) {
+                if (t.keys[i] == key) {
+                    if (t.values[i] != value) return false;
+                    shiftBack(t, i);
+                    size--;
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            return false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private static void shiftBack(Table t, int gap) {
+        int mask = t.keys.length - 1;
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (t.values[i] == null) break;
+            int home = slot(t.keys[i], mask);
+            // Move the entry into the gap if its home slot is not between the gap and i
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                t.keys[gap] = t.keys[i];
+                t.values[gap] = t.values[i];
+                gap = i;
+            }
+        }
+        t.values[gap] = null;
+        t.keys[gap] = 0;
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int s = size;
+        if (lock.validate(stamp)) return s;
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(table.keys.length);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Snapshot of the current values; safe to iterate while the map changes. */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        long stamp = lock.readLock();
+        try {
+            List<V> out = new ArrayList<>(size);
+            for (Object value : table.values) {
+                if (value != null) out.add((V) value);
+            }
+            return out;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Snapshot of the current keys. */
+    public long[] keys() {
+        long stamp = lock.readLock();
+        try {
+            long[] out = new long[size];
+            int n = 0;
+            Table t = table;
+            for (int i = 0; i < t.keys.length; i++) {
+                if (t.values[i] != null) out[n++] = t.keys[i];
+            }
+            return out;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Visits every entry of a snapshot, so {@code action} may modify the map. */
+    @SuppressWarnings("unchecked")
+    public void forEach(Entry<? super V> action) {
+        long[] keys;
+        Object[] values;
+        long stamp = lock.readLock();
+        try {
+            Table t = table;
+            keys = new long[size];
+            values = new Object[size];
+            int n = 0;
+            for (int i = 0; i < t.keys.length; i++) {
+                if (t.values[i] == null) continue;
+                keys[n] = t.keys[i];
+                values[n++] = t.values[i];
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        for (int i = 0; i < keys.length; i++) action.accept(keys[i], (V) values[i]);
+    }
+}
@@ -0,0 +1,27 @@
+package engine.common.util;
+
+/**
+ * Set of primitive longs backed by {@link Long2ObjectHashMap}; same concurrency guarantees.
+ */
+public class LongHashSet {
+    private static final Object PRESENT = new Object();
+    private final Long2ObjectHashMap<Object> map;
+
+    public LongHashSet() {
+        map = new Long2ObjectHashMap<>();
+    }
+
+    public LongHashSet(int expectedSize) {
+        map = new Long2ObjectHashMap<>(expectedSize);
+    }
+
+    /** Returns true if the value was not already present. */
+    public boolean add(long value) { return map.putIfAbsent(value, PRESENT) == null; }
+    public boolean contains(long value) { return map.containsKey(value); }
+    public boolean remove(long value) { return map.remove(value) != null; }
+    public int size() { return map.size(); }
+    public boolean isEmpty() { return map.isEmpty(); }
+    public void clear() { map.clear(); }
+    /** Snapshot of the current contents. */
+    public long[] toArray() { return map.keys(); }
+}
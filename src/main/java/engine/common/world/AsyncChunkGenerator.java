@@ -14,7 +14,7 @@ public class AsyncChunkGenerator {
         executor.submit(() -> {
             try {
                 Chunk chunk = Chunk.createGenerated(x, y, z);
-                generator.generate(chunk);
+                generator.populate(chunk);
                 future.complete(chunk);
             } catch (Exception e) {
                 future.completeExceptionally(e);
@@ -26,4 +26,4 @@ public class AsyncChunkGenerator {
     public void shutdown() {
         executor.shutdown();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package engine.common.world;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import engine.common.block.Block;
 import engine.common.block.Material;
@@ -9,12 +12,36 @@ import engine.common.network.NetworkManager;
 /**
  * Shared chunk class. Only the server should generate/fill blocks.
  * The client should only fill blocks via deserializeBlocks, using the factory method below.
+ *
+ * Blocks live in 16x16x16 sections; an all-air section is stored as null and costs
+ * nothing in memory, on the wire or on disk.
  */
 public class Chunk {
     public static final int SIZE = 16;
     public static final int HEIGHT = 128;
+    public static final int SECTIONS = HEIGHT / ChunkSection.SIZE;
+    // Pre-section save files: 3 coordinate ints followed by one byte per block
+    private static final long LEGACY_FILE_LENGTH = 12 + SIZE * HEIGHT * SIZE;
     private final int chunkX, chunkY, chunkZ;
-    private final Block[][][] blocks = new Block[SIZE][HEIGHT][SIZE];
+    private final ChunkSection[] sections = new ChunkSection[SECTIONS];
+    // Bumped on every block change; the chunk is dirty until a save records this version
+    private final AtomicLong version = new AtomicLong();
+    private volatile long savedVersion;
+    // Server tick of the last lookup, used to demote idle chunks to the compressed tier
+    private volatile long lastAccessTick;
+    // Positions changed since generation; null unless the server can regenerate this chunk's baseline
+    private BitSet edits;
+    // Last compressed wire payload, shared by every connection sending this chunk until the next change
+    private volatile Payload payload;
+
+    private static final class Payload {
+        final long version;
+        final byte[] bytes;
+        Payload(long version, byte[] bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
 
     // Private constructor: does NOT fill blocks!
     private Chunk(int chunkX, int chunkY, int chunkZ) {
@@ -23,14 +50,9 @@ public class Chunk {
         this.chunkZ = chunkZ;
     }
 
-    /** Server-side factory: generates blocks as empty (air/0) and then generator fills them. */
+    /** Server-side factory: starts as all air (no sections) and then generator fills it. */
     public static Chunk createGenerated(int chunkX, int chunkY, int chunkZ) {
-        Chunk chunk = new Chunk(chunkX, chunkY, chunkZ);
-        for(int x=0;x<SIZE;x++)
-            for(int y=0;y<HEIGHT;y++)
-                for(int z=0;z<SIZE;z++)
-                    chunk.blocks[x][y][z] = new Block(Material.AIR);
-        return chunk;
+        return new Chunk(chunkX, chunkY, chunkZ);
     }
 
     /** Client-side factory: creates chunk and immediately fills from network data. */
@@ -41,43 +63,203 @@ public class Chunk {
     }
 
     public Block getBlock(int x, int y, int z) {
+        Material type = getMaterial(x, y, z);
+        return type == null ? null : Block.of(type);
+    }
+    public Material getMaterial(int x, int y, int z) {
         if (x < 0 || x >= SIZE || y < 0 || y >= HEIGHT || z < 0 || z >= SIZE) return null;
-        return blocks[x][y][z];
+        ChunkSection section = sections[y >> 4];
+        return section == null ? Material.AIR : section.get(x, y & 15, z);
+    }
+    /** Returns true if the block changed. */
+    public synchronized boolean setBlock(int x, int y, int z, Block block) {
+        Material type = block == null ? Material.AIR : block.getType();
+        int s = y >> 4;
+        ChunkSection section = sections[s];
+        if (section == null) {
+            if (type == Material.AIR) return false;
+            section = sections[s] = new ChunkSection();
+        } else if (section.isShared()) {
+            // Copy-on-write: a snapshot still reads the shared section
+            if (section.get(x, y & 15, z) == type) return false;
+            section = sections[s] = section.copy();
+        }
+        if (!section.set(x, y & 15, z, type)) return false;
+        if (section.isEmpty()) sections[s] = null;
+        if (edits != null) edits.set(blockIndex(x, y, z));
+        version.incrementAndGet();
+        payload = null;
+        return true;
+    }
+    /** Replaces section {@code s} with {@link ChunkSection#VOLUME} material ids in section index order; for generators and server section updates, not recorded as edits. */
+    public synchronized void setSection(int s, byte[] ids, int offset) {
+        ChunkSection section = new ChunkSection();
+        section.read(ids, offset);
+        if (section.isEmpty()) section = null;
+        if (sections[s] == null && section == null) return;
+        sections[s] = section;
+        version.incrementAndGet();
+    }
+    /** Writes section {@code s} as {@link ChunkSection#VOLUME} material ids in section index order; all air if empty. */
+    public synchronized void writeSection(int s, byte[] out, int offset) {
+        if (sections[s] == null) Arrays.fill(out, offset, offset + ChunkSection.VOLUME, (byte) Material.AIR.getId());
+        else sections[s].write(out, offset);
     }
-    public void setBlock(int x, int y, int z, Block block) { blocks[x][y][z] = block; }
+    /** Replaces the contents with the template's sections, shared until this chunk writes to them. */
+    public synchronized void applyTemplate(ChunkTemplate template) {
+        boolean changed = false;
+        for (int s = 0; s < SECTIONS; s++) {
+            ChunkSection section = template.getSection(s);
+            changed |= sections[s] != section;
+            sections[s] = section;
+        }
+        if (changed) version.incrementAndGet();
+    }
+    /**
+     * Point-in-time copy that shares its sections with this chunk. Shared sections are
+     * copied by the next write to this chunk, so the snapshot never changes; it must not
+     * be written to itself.
+     */
+    public synchronized Chunk snapshot() {
+        Chunk copy = new Chunk(chunkX, chunkY, chunkZ);
+        for (int s = 0; s < SECTIONS; s++) {
+            if (sections[s] == null) continue;
+            sections[s].markShared();
+            copy.sections[s] = sections[s];
+        }
+        copy.version.set(version.get());
+        copy.savedVersion = savedVersion;
+        copy.edits = edits == null ? null : (BitSet) edits.clone();
+        return copy;
+    }
+    /** Position of a block in the edit mask: y-major, then z, then x. */
+    public static int blockIndex(int x, int y, int z) { return (y * SIZE + z) * SIZE + x; }
+    /** Starts recording edited positions on top of the generated blocks, seeded from {@code mask} if given. */
+    public synchronized void trackEdits(BitSet mask) {
+        edits = mask == null ? new BitSet() : (BitSet) mask.clone();
+    }
+    public synchronized boolean isTrackingEdits() { return edits != null; }
+    /** Copy of the positions edited since generation, or null if edits are not tracked. */
+    public synchronized BitSet getEditMask() { return edits == null ? null : (BitSet) edits.clone(); }
+    public long getVersion() { return version.get(); }
+    public boolean isDirty() { return version.get() != savedVersion; }
+    /** Records that the state at {@code savedVersion} has been persisted. */
+    public void markSaved(long savedVersion) { this.savedVersion = savedVersion; }
+    /** Returns the section at index {@code s} (covering y = s*16 .. s*16+15), or null if it is all air. */
+    public ChunkSection getSection(int s) { return sections[s]; }
+    public boolean isSectionEmpty(int s) { return sections[s] == null; }
+    /** Approximate heap footprint in bytes of this chunk and its sections. */
+    public long estimateMemoryUsage() {
+        long bytes = 64 + 16 + 8L * SECTIONS;
+        for (ChunkSection section : sections) {
+            if (section != null) bytes += section.estimateMemoryUsage();
+        }
+        Payload cached = payload;
+        if (cached != null) bytes += 32 + 16 + cached.bytes.length;
+        return bytes;
+    }
+    public void touch(long tick) { lastAccessTick = tick; }
+    public long getLastAccessTick() { return lastAccessTick; }
     public int getX() { return chunkX; }
     public int getY() { return chunkY; }
     public int getZ() { return chunkZ; }
 
     public void save(File file) throws IOException {
-        try(DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
             out.writeInt(chunkX); out.writeInt(chunkY); out.writeInt(chunkZ);
-            for(int x=0;x<SIZE;x++)
-                for(int y=0;y<HEIGHT;y++)
-                    for(int z=0;z<SIZE;z++)
-                    	out.writeByte(blocks[x][y][z].getType().getId());
+            out.write(encodeSections());
         }
     }
     public static Chunk load(File file) throws IOException {
-        try(DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
             int cx = in.readInt(), cy = in.readInt(), cz = in.readInt();
             Chunk chunk = createGenerated(cx, cy, cz); // Loads on server
-            for(int x=0;x<SIZE;x++)
-                for(int y=0;y<HEIGHT;y++)
-                    for(int z=0;z<SIZE;z++)
-                    	chunk.blocks[x][y][z].setType(Material.fromId(in.readByte()));
+            if (file.length() == LEGACY_FILE_LENGTH) {
+                for(int x=0;x<SIZE;x++)
+                    for(int y=0;y<HEIGHT;y++)
+                        for(int z=0;z<SIZE;z++)
+                            chunk.setBlock(x, y, z, Block.of(Material.fromId(in.readByte())));
+            } else {
+                byte[] data = new byte[(int) file.length() - 12];
+                in.readFully(data);
+                chunk.decodeSections(data);
+            }
             return chunk;
         }
     }
 
+    /** Rebuilds a chunk from {@link #encodeSections()} output. */
+    public static Chunk fromSections(int chunkX, int chunkY, int chunkZ, byte[] data) {
+        Chunk chunk = new Chunk(chunkX, chunkY, chunkZ);
+        chunk.decodeSections(data);
+        chunk.markSaved(chunk.getVersion());
+        return chunk;
+    }
+
+    /**
+     * Section layout shared by the wire and disk formats: an int bitmask of non-empty
+     * sections followed by {@link ChunkSection#VOLUME} ids for each set bit, bottom up.
+     */
+    public synchronized byte[] encodeSections() {
+        int mask = 0, count = 0;
+        for (int s = 0; s < SECTIONS; s++) {
+            if (sections[s] != null) { mask |= 1 << s; count++; }
+        }
+        byte[] data = new byte[4 + count * ChunkSection.VOLUME];
+        data[0] = (byte) (mask >>> 24); data[1] = (byte) (mask >>> 16);
+        data[2] = (byte) (mask >>> 8);  data[3] = (byte) mask;
+        int offset = 4;
+        for (int s = 0; s < SECTIONS; s++) {
+            if (sections[s] == null) continue;
+            sections[s].write(data, offset);
+            offset += ChunkSection.VOLUME;
+        }
+        return data;
+    }
+
+    private void decodeSections(byte[] data) {
+        payload = null;
+        int mask = ((data[0] & 0xFF) << 24) | ((data[1] & 0xFF) << 16) | ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+        int expected = 4 + Integer.bitCount(mask) * ChunkSection.VOLUME;
+        if (data.length != expected || (mask >>> SECTIONS) != 0) {
+            throw new IllegalArgumentException("Block data size mismatch! Got " + data.length + ", expected " + expected);
+        }
+        int offset = 4;
+        for (int s = 0; s < SECTIONS; s++) {
+            if ((mask & (1 << s)) == 0) { sections[s] = null; continue; }
+            ChunkSection section = new ChunkSection();
+            section.read(data, offset);
+            offset += ChunkSection.VOLUME;
+            sections[s] = section.isEmpty() ? null : section;
+        }
+    }
+
+    /**
+     * Compressed wire form of the blocks. Cached until the chunk changes, so the returned
+     * array is shared and must not be modified.
+     */
     public byte[] serializeBlocks() {
-    	byte[] data = new byte[SIZE * HEIGHT * SIZE];
-    	int i = 0;
-    	for (int x = 0; x < SIZE; x++)
-    	    for (int y = 0; y < HEIGHT; y++)
-    	        for (int z = 0; z < SIZE; z++)
-    	            data[i++] = (byte)getBlock(x, y, z).getType().getId();
-    	return NetworkManager.compress(data);
+        Payload cached = payload;
+        if (cached != null && cached.version == version.get()) return cached.bytes;
+        byte[] raw;
+        long encoded;
+        // Version and blocks read under the lock together; compression runs outside it so edits are not held up
+        synchronized (this) {
+            encoded = version.get();
+            raw = encodeSections();
+        }
+        byte[] bytes = NetworkManager.compress(raw);
+        synchronized (this) {
+            // A newer version may have been cached meanwhile; only store ours if it is still current
+            if (version.get() == encoded) payload = new Payload(encoded, bytes);
+        }
+        return bytes;
+    }
+
+    /** The cached result of {@link #serializeBlocks()} if it is still current, otherwise null. */
+    public byte[] getCachedPayload() {
+        Payload cached = payload;
+        return cached != null && cached.version == version.get() ? cached.bytes : null;
     }
 
     public void deserializeBlocks(byte[] packet) {
@@ -88,15 +270,6 @@ public class Chunk {
             e.printStackTrace();
             return;
         }
-        int expected = SIZE * HEIGHT * SIZE;
-        if (data.length != expected) {
-            throw new IllegalArgumentException("Block data size mismatch! Got " + data.length + ", expected " + expected);
-        }
-        int i = 0;
-        for (int x = 0; x < SIZE; x++)
-            for (int y = 0; y < HEIGHT; y++)
-                for (int z = 0; z < SIZE; z++) {
-                	blocks[x][y][z] = new Block(Material.fromId(data[i++]));
-                }
-    }
-}
\ No newline at end of file
+        decodeSections(data);
+    }
+}
@@ -0,0 +1,21 @@
+package engine.common.world;
+
+/**
+ * Packs chunk coordinates into a single long so chunk maps can key on a primitive.
+ * Layout: 26 bits x | 26 bits z | 12 bits y, each sign-extended on unpack.
+ */
+public final class ChunkPos {
+    private ChunkPos() {}
+
+    public static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) z & 0x3FFFFFFL) << 12 | ((long) y & 0xFFFL);
+    }
+
+    public static int getX(long key) { return (int) (key >> 38); }
+    public static int getZ(long key) { return (int) (key << 26 >> 38); }
+    public static int getY(long key) { return (int) (key << 52 >> 52); }
+
+    public static long of(Chunk chunk) {
+        return pack(chunk.getX(), chunk.getY(), chunk.getZ());
+    }
+}
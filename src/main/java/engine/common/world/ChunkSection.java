@@ -0,0 +1,79 @@
+package engine.common.world;
+
+import engine.common.block.Material;
+
+/**
+ * A 16x16x16 vertical slice of a chunk. Tracks how many non-air blocks it holds so
+ * the owning chunk can drop it entirely once it is all air.
+ */
+public class ChunkSection {
+    public static final int SIZE = 16;
+    public static final int VOLUME = SIZE * SIZE * SIZE;
+
+    private final PalettedStorage blocks;
+    private int nonAirCount;
+    // Set once a snapshot references this section; the owning chunk then copies before writing
+    private volatile boolean shared;
+
+    public ChunkSection() {
+        this(new PalettedStorage(VOLUME, Material.AIR), 0);
+    }
+
+    private ChunkSection(PalettedStorage blocks, int nonAirCount) {
+        this.blocks = blocks;
+        this.nonAirCount = nonAirCount;
+    }
+
+    /** Unshared copy of this section. */
+    public ChunkSection copy() { return new ChunkSection(blocks.copy(), nonAirCount); }
+    public void markShared() { shared = true; }
+    public boolean isShared() { return shared; }
+
+    // y-major so a horizontal layer is contiguous
+    static int index(int x, int y, int z) { return (y * SIZE + z) * SIZE + x; }
+
+    public Material get(int x, int y, int z) {
+        return blocks.get(index(x, y, z));
+    }
+
+    /** Returns true if the stored material changed. */
+    public boolean set(int x, int y, int z, Material material) {
+        int i = index(x, y, z);
+        Material previous = blocks.get(i);
+        if (previous == material) return false;
+        blocks.set(i, material);
+        if (previous == Material.AIR) nonAirCount++;
+        else if (material == Material.AIR) nonAirCount--;
+        return true;
+    }
+
+    /** Sets every block of layer {@code y} to {@code material}. */
+    public void fillLayer(int y, Material material) {
+        for (int i = index(0, y, 0), end = i + SIZE * SIZE; i < end; i++) {
+            Material previous = blocks.get(i);
+            if (previous == material) continue;
+            blocks.set(i, material);
+            if (previous == Material.AIR) nonAirCount++;
+            else if (material == Material.AIR) nonAirCount--;
+        }
+    }
+
+    public long estimateMemoryUsage() { return 24 + blocks.estimateMemoryUsage(); }
+
+    public int getNonAirCount() { return nonAirCount; }
+    public boolean isEmpty() { return nonAirCount == 0; }
+
+    /** Writes VOLUME material ids in section index order. */
+    public void write(byte[] out, int offset) {
+        blocks.writeIds(out, offset);
+    }
+
+    /** Reads VOLUME material ids in section index order. */
+    public void read(byte[] in, int offset) {
+        blocks.readIds(in, offset);
+        nonAirCount = 0;
+        for (int i = 0; i < VOLUME; i++) {
+            if (Material.fromId(in[offset + i]) != Material.AIR) nonAirCount++;
+        }
+    }
+}
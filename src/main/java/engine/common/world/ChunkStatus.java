@@ -0,0 +1,17 @@
+package engine.common.world;
+
+/**
+ * Generation stages in order. Each stage works on its own chunk only; features that
+ * cross borders, such as boulders, are placed by each chunk from the column data of its
+ * 3x3 neighbourhood, so standalone regeneration, which delta persistence relies on,
+ * gives the same blocks.
+ */
+public enum ChunkStatus {
+    EMPTY,
+    NOISE,
+    SURFACE,
+    CARVERS,
+    DECORATION,
+    LIGHT,
+    FULL
+}
@@ -0,0 +1,43 @@
+package engine.common.world;
+
+import engine.common.block.Material;
+
+/**
+ * Prebuilt contents of a chunk whose blocks do not depend on its position, such as
+ * superflat layers or an empty void. Chunks built from a template share its sections
+ * copy-on-write, so they cost no generation work and no section memory until edited.
+ */
+public final class ChunkTemplate {
+    private static final ChunkTemplate EMPTY = new ChunkTemplate(new Material[0]);
+
+    private final ChunkSection[] sections = new ChunkSection[Chunk.SECTIONS];
+
+    private ChunkTemplate(Material[] layers) {
+        if (layers.length > Chunk.HEIGHT) throw new IllegalArgumentException("More layers than chunk height: " + layers.length);
+        for (int y = 0; y < layers.length; y++) {
+            Material m = layers[y];
+            if (m == null || m == Material.AIR) continue;
+            int s = y >> 4;
+            if (sections[s] == null) sections[s] = new ChunkSection();
+            sections[s].fillLayer(y & 15, m);
+        }
+        // Never written in place; chunks copy a section before their first edit to it
+        for (ChunkSection section : sections) {
+            if (section != null) section.markShared();
+        }
+    }
+
+    /** Whole horizontal layers bottom up: {@code layers[y]} fills y; null or AIR and anything above stay air. */
+    public static ChunkTemplate layered(Material... layers) {
+        return new ChunkTemplate(layers.clone());
+    }
+
+    /** All air. */
+    public static ChunkTemplate empty() {
+        return EMPTY;
+    }
+
+    ChunkSection getSection(int s) {
+        return sections[s];
+    }
+}
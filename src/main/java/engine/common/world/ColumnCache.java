@@ -0,0 +1,59 @@
+package engine.common.world;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lock-free cache of per chunk column (x, z) data such as heightmaps, shared by
+ * every vertical chunk and neighbouring generation task in that column.
+ *
+ * Direct-mapped: each column hashes to one slot and a newer column simply replaces the
+ * old one. Two threads missing on the same column may both compute it; values must be
+ * immutable and deterministic, so either result is fine.
+ */
+public class ColumnCache<T> {
+    public interface Loader<T> {
+        T load(int chunkX, int chunkZ);
+    }
+
+    private static final class Entry<T> {
+        final int x, z;
+        final T value;
+        Entry(int x, int z, T value) { this.x = x; this.z = z; this.value = value; }
+    }
+
+    private final AtomicReferenceArray<Entry<T>> slots;
+    private final int mask;
+    private final Loader<T> loader;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** {@code capacity} is rounded up to a power of two. */
+    public ColumnCache(int capacity, Loader<T> loader) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.loader = loader;
+    }
+
+    public T get(int chunkX, int chunkZ) {
+        int slot = slot(chunkX, chunkZ);
+        Entry<T> entry = slots.get(slot);
+        if (entry != null && entry.x == chunkX && entry.z == chunkZ) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        T value = loader.load(chunkX, chunkZ);
+        slots.set(slot, new Entry<>(chunkX, chunkZ, value));
+        return value;
+    }
+
+    private int slot(int x, int z) {
+        int h = x * 0x9E3779B1 ^ z * 0x85EBCA77;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+}
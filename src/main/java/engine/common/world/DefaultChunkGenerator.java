@@ -1,6 +1,5 @@
 package engine.common.world;
 
-import engine.common.block.Block;
 import engine.common.block.Material;
 import engine.server.ChunkGenerator;
 
@@ -8,11 +7,28 @@ import engine.server.ChunkGenerator;
 class FakeNoise {
     public static double noise(double x, double z) {
         // Generates hills and valleys, but NOT just stone
-        return Math.sin(x * 0.012) * 12 + Math.cos(z * 0.018) * 9;
+        return xTerm(x) + zTerm(z);
     }
+
+    // The two axes are independent, so a chunk needs 16 of each rather than 256 of both
+    static double xTerm(double x) { return Math.sin(x * 0.012) * 12; }
+    static double zTerm(double z) { return Math.cos(z * 0.018) * 9; }
 }
 
 public class DefaultChunkGenerator implements ChunkGenerator {
+    private static final byte SAND = (byte) Material.SAND.getId();
+    private static final byte GRASS = (byte) Material.GRASS.getId();
+    // Scratch arrays per generating thread; generate() is called from the async pool
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        final double[] xTerm = new double[Chunk.SIZE];
+        final double[] zTerm = new double[Chunk.SIZE];
+        final int[] heights = new int[TerrainKernels.COLUMNS];
+        final byte[] surface = new byte[TerrainKernels.COLUMNS];
+        final byte[] section = new byte[ChunkSection.VOLUME];
+    }
+
     private final int seaLevel;
     private final int maxHeight;
 
@@ -21,46 +37,39 @@ public class DefaultChunkGenerator implements ChunkGenerator {
         this.maxHeight = maxHeight;
     }
 
+    // Terrain settings are part of the id: stored deltas only apply to the same settings
+    @Override
+    public String getId() { return "default/" + seaLevel + "/" + maxHeight; }
+
     @Override
     public void generate(Chunk chunk) {
         int baseX = chunk.getX() * Chunk.SIZE;
-        int baseY = chunk.getY() * Chunk.SIZE;
+        int baseY = chunk.getY() * Chunk.HEIGHT;
         int baseZ = chunk.getZ() * Chunk.SIZE;
+        TerrainKernels kernels = TerrainKernels.get();
+        Scratch scratch = SCRATCH.get();
 
-        for (int x = 0; x < Chunk.SIZE; x++) {
-            for (int z = 0; z < Chunk.SIZE; z++) {
-                int worldX = baseX + x;
-                int worldZ = baseZ + z;
-
-                // Terrain height based on noise (varied, not flat)
-                int terrainHeight = seaLevel + (int)FakeNoise.noise(worldX, worldZ);
-                terrainHeight = Math.max(8, Math.min(maxHeight, terrainHeight));
-
-                for (int y = 0; y < Chunk.SIZE; y++) {
-                    int worldY = baseY + y;
-                    Block block;
-
-                    if (worldY > terrainHeight) {
-                        // Air or water above terrain
-                        block = (worldY <= seaLevel) ? new Block(Material.WATER) : new Block(Material.AIR);
-                    } else if (worldY == terrainHeight) {
-                        // Surface block
-                        if (terrainHeight < seaLevel + 2) {
-                            block = new Block(Material.SAND); // Beach
-                        } else if (terrainHeight > maxHeight - 10) {
-                            block = new Block(Material.GRASS); // Mountain peak
-                        } else {
-                            block = new Block(Material.GRASS); // Grass
-                        }
-                    } else if (worldY > terrainHeight - 3) {
-                        block = new Block(Material.DIRT); // Dirt under surface
-                    } else {
-                        block = new Block(Material.STONE); // Stone below
-                    }
+        for (int i = 0; i < Chunk.SIZE; i++) {
+            scratch.xTerm[i] = FakeNoise.xTerm(baseX + i);
+            scratch.zTerm[i] = FakeNoise.zTerm(baseZ + i);
+        }
+        // Terrain height based on noise (varied, not flat)
+        int[] heights = scratch.heights;
+        kernels.columnHeights(scratch.xTerm, scratch.zTerm, seaLevel, 8, maxHeight, heights);
+        int highest = seaLevel;
+        for (int i = 0; i < TerrainKernels.COLUMNS; i++) {
+            // Sand on beaches, grass everywhere else including peaks
+            scratch.surface[i] = heights[i] < seaLevel + 2 ? SAND : GRASS;
+            highest = Math.max(highest, heights[i]);
+        }
 
-                    chunk.setBlock(x, y, z, block);
-                }
+        // Sections above the surface and the water line are all air, which null sections already represent
+        for (int s = 0; s < Chunk.SECTIONS && baseY + s * ChunkSection.SIZE <= highest; s++) {
+            for (int y = 0; y < ChunkSection.SIZE; y++) {
+                int worldY = baseY + s * ChunkSection.SIZE + y;
+                kernels.fillLayer(heights, scratch.surface, worldY, seaLevel, scratch.section, y * TerrainKernels.COLUMNS);
             }
+            chunk.setSection(s, scratch.section, 0);
         }
     }
-}
\ No newline at end of file
+}
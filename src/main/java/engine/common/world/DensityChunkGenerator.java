@@ -0,0 +1,130 @@
+package engine.common.world;
+
+import engine.common.block.Block;
+import engine.common.block.Material;
+import engine.server.ChunkGenerator;
+
+/**
+ * 3D density terrain with caves, overhangs and floating islands. A voxel is solid where
+ * the density is positive.
+ *
+ * Noise is only sampled on a coarse lattice, one point every 4x8x4 blocks, and
+ * trilinearly interpolated in between: 5x17x5 samples per chunk instead of 16x128x16.
+ * Interpolation runs column by column over reused primitive arrays.
+ */
+public class DensityChunkGenerator implements ChunkGenerator {
+    private static final int CELL_XZ = 4;
+    private static final int CELL_Y = 8;
+    private static final int SAMPLES_XZ = Chunk.SIZE / CELL_XZ + 1;
+    private static final int SAMPLES_Y = Chunk.HEIGHT / CELL_Y + 1;
+    private static final int FILLER_DEPTH = 3;
+
+    // Scratch arrays per generating thread; generate() is called from the async pool
+    private static final ThreadLocal<double[][]> SCRATCH = ThreadLocal.withInitial(() -> new double[][] {
+        new double[SAMPLES_XZ * SAMPLES_XZ * SAMPLES_Y], new double[SAMPLES_Y], new double[Chunk.HEIGHT]
+    });
+
+    private final long seed;
+    private final int seaLevel;
+    private final FractalNoise ground;
+    private final FractalNoise terrain;
+    private final FractalNoise caves;
+    private final FractalNoise islands;
+
+    public DensityChunkGenerator(long seed) {
+        this(seed, 48);
+    }
+
+    public DensityChunkGenerator(long seed, int seaLevel) {
+        this.seed = seed;
+        this.seaLevel = seaLevel;
+        this.ground = new FractalNoise(seed, 3, 1.0 / 256);
+        this.terrain = new FractalNoise(seed + 1, 3, 1.0 / 64);
+        this.caves = new FractalNoise(seed + 2, 2, 1.0 / 48);
+        this.islands = new FractalNoise(seed + 3, 2, 1.0 / 96);
+    }
+
+    @Override
+    public String getId() { return "density/" + seaLevel; }
+
+    @Override
+    public long getSeed() { return seed; }
+
+    /** Raw density at a world position; positive is solid. */
+    public double density(double worldX, double worldY, double worldZ) {
+        double groundHeight = seaLevel + ground.noise(worldX, worldZ) * 20;
+        // Falls off with height above the ground; 3D noise bends it into overhangs
+        double d = (groundHeight - worldY) / 16.0 + terrain.noise(worldX, worldY, worldZ);
+        // Islands: a band of positive density high above the ground
+        double band = 1.0 - Math.abs(worldY - 100) / 12.0;
+        if (band > 0) d = Math.max(d, (islands.noise(worldX, worldY * 2, worldZ) - 0.3) * 3 * band);
+        // Caves: thin tubes where the cave noise crosses zero, kept away from the sea floor
+        if (worldY > 4 && worldY < groundHeight - 4) {
+            double c = Math.abs(caves.noise(worldX, worldY * 1.5, worldZ));
+            if (c < 0.06) d = Math.min(d, (c - 0.06) * 10);
+        }
+        return d;
+    }
+
+    @Override
+    public void generate(Chunk chunk) {
+        double[][] scratch = SCRATCH.get();
+        double[] lattice = scratch[0];
+        double[] column = scratch[1];
+        double[] densities = scratch[2];
+        int baseX = chunk.getX() * Chunk.SIZE;
+        int baseY = chunk.getY() * Chunk.HEIGHT;
+        int baseZ = chunk.getZ() * Chunk.SIZE;
+
+        for (int sx = 0; sx < SAMPLES_XZ; sx++)
+            for (int sz = 0; sz < SAMPLES_XZ; sz++)
+                for (int sy = 0; sy < SAMPLES_Y; sy++)
+                    lattice[(sx * SAMPLES_XZ + sz) * SAMPLES_Y + sy] =
+                        density(baseX + sx * CELL_XZ, baseY + sy * CELL_Y, baseZ + sz * CELL_XZ);
+
+        for (int x = 0; x < Chunk.SIZE; x++) {
+            int sx = x / CELL_XZ;
+            double tx = (x % CELL_XZ) / (double) CELL_XZ;
+            for (int z = 0; z < Chunk.SIZE; z++) {
+                int sz = z / CELL_XZ;
+                double tz = (z % CELL_XZ) / (double) CELL_XZ;
+                // Bilinear blend of the four surrounding lattice columns...
+                int c00 = (sx * SAMPLES_XZ + sz) * SAMPLES_Y;
+                int c10 = ((sx + 1) * SAMPLES_XZ + sz) * SAMPLES_Y;
+                int c01 = (sx * SAMPLES_XZ + sz + 1) * SAMPLES_Y;
+                int c11 = ((sx + 1) * SAMPLES_XZ + sz + 1) * SAMPLES_Y;
+                for (int sy = 0; sy < SAMPLES_Y; sy++) {
+                    double a = lattice[c00 + sy] + (lattice[c10 + sy] - lattice[c00 + sy]) * tx;
+                    double b = lattice[c01 + sy] + (lattice[c11 + sy] - lattice[c01 + sy]) * tx;
+                    column[sy] = a + (b - a) * tz;
+                }
+                // ...then linear along y
+                for (int y = 0; y < Chunk.HEIGHT; y++) {
+                    int sy = y / CELL_Y;
+                    double ty = (y % CELL_Y) / (double) CELL_Y;
+                    densities[y] = column[sy] + (column[sy + 1] - column[sy]) * ty;
+                }
+                fillColumn(chunk, x, z, baseY, densities);
+            }
+        }
+    }
+
+    // Top-down so each solid voxel knows how deep it is below the nearest open space
+    private void fillColumn(Chunk chunk, int x, int z, int baseY, double[] densities) {
+        int depth = -1;
+        for (int y = Chunk.HEIGHT - 1; y >= 0; y--) {
+            int worldY = baseY + y;
+            if (densities[y] <= 0) {
+                depth = -1;
+                if (worldY <= seaLevel) chunk.setBlock(x, y, z, Block.of(Material.WATER));
+                continue;
+            }
+            depth++;
+            Material material;
+            if (depth == 0) material = worldY < seaLevel ? Material.SAND : Material.GRASS;
+            else if (depth <= FILLER_DEPTH) material = worldY < seaLevel ? Material.SAND : Material.DIRT;
+            else material = Material.STONE;
+            chunk.setBlock(x, y, z, Block.of(material));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package engine.common.world;
+
+/**
+ * Sum of simplex octaves at doubling frequency and falling amplitude, normalized to roughly [-1, 1].
+ * Each octave uses its own permutation so octaves do not line up.
+ */
+public class FractalNoise {
+    private final SimplexNoise[] octaves;
+    private final double frequency;
+    private final double lacunarity;
+    private final double persistence;
+    private final double normalization;
+
+    public FractalNoise(long seed, int octaves, double frequency) {
+        this(seed, octaves, frequency, 2.0, 0.5);
+    }
+
+    public FractalNoise(long seed, int octaves, double frequency, double lacunarity, double persistence) {
+        this.octaves = new SimplexNoise[octaves];
+        for (int i = 0; i < octaves; i++) this.octaves[i] = new SimplexNoise(seed * 31 + i);
+        this.frequency = frequency;
+        this.lacunarity = lacunarity;
+        this.persistence = persistence;
+        double amplitude = 1, total = 0;
+        for (int i = 0; i < octaves; i++) {
+            total += amplitude;
+            amplitude *= persistence;
+        }
+        this.normalization = 1.0 / total;
+    }
+
+    public double noise(double x, double z) {
+        double sum = 0, f = frequency, amplitude = 1;
+        for (SimplexNoise octave : octaves) {
+            sum += octave.noise(x * f, z * f) * amplitude;
+            f *= lacunarity;
+            amplitude *= persistence;
+        }
+        return sum * normalization;
+    }
+
+    public double noise(double x, double y, double z) {
+        double sum = 0, f = frequency, amplitude = 1;
+        for (SimplexNoise octave : octaves) {
+            sum += octave.noise(x * f, y * f, z * f) * amplitude;
+            f *= lacunarity;
+            amplitude *= persistence;
+        }
+        return sum * normalization;
+    }
+}
@@ -0,0 +1,230 @@
+package engine.common.world;
+
+import engine.common.block.Block;
+import engine.common.block.Material;
+import engine.server.StagedChunkGenerator;
+
+/**
+ * Seeded fractal-noise terrain with continents, mountains, rivers and biomes.
+ * All 2D work (height, biome) is done once per chunk column and kept in a
+ * {@link ColumnCache}, so vertical chunks and neighbours reuse it.
+ *
+ * Stages: NOISE lays stone and water, SURFACE applies biome layers, CARVERS cuts caves,
+ * DECORATION places boulders. Boulders may straddle chunk borders; each chunk places the
+ * parts of every boulder rooted in it or its neighbours, using the cached heights of the
+ * root column, so the result does not depend on neighbour blocks or scheduling order.
+ */
+public class NoiseChunkGenerator implements StagedChunkGenerator {
+    private static final int COLUMN_CACHE_SIZE = Integer.getInteger("voxel.columnCacheSize", 1024);
+    private static final int FILLER_DEPTH = 3;
+    // |river noise| below this carves a channel; the inner part is the river bed itself
+    private static final double RIVER_BANK = 0.05;
+    private static final double RIVER_BED = 0.025;
+    private static final double CAVE_THRESHOLD = 0.06;
+    private static final int MAX_BOULDER_RADIUS = 3;
+
+    public enum Biome {
+        OCEAN(Material.SAND, Material.SAND),
+        BEACH(Material.SAND, Material.SAND),
+        RIVER(Material.SAND, Material.DIRT),
+        PLAINS(Material.GRASS, Material.DIRT),
+        DESERT(Material.SAND, Material.SAND),
+        MOUNTAINS(Material.STONE, Material.STONE);
+
+        public final Material surface;
+        public final Material filler;
+
+        Biome(Material surface, Material filler) {
+            this.surface = surface;
+            this.filler = filler;
+        }
+    }
+
+    /** Heights and biomes of one 16x16 chunk column, indexed z * 16 + x. */
+    public static final class Column {
+        final int[] height = new int[Chunk.SIZE * Chunk.SIZE];
+        final Biome[] biome = new Biome[Chunk.SIZE * Chunk.SIZE];
+
+        public int getHeight(int x, int z) { return height[z * Chunk.SIZE + x]; }
+        public Biome getBiome(int x, int z) { return biome[z * Chunk.SIZE + x]; }
+    }
+
+    private final long seed;
+    private final int seaLevel;
+    private final FractalNoise continents;
+    private final FractalNoise detail;
+    private final FractalNoise mountains;
+    private final FractalNoise rivers;
+    private final FractalNoise temperature;
+    private final FractalNoise humidity;
+    private final SimplexNoise caves;
+    private final ColumnCache<Column> columns;
+
+    public NoiseChunkGenerator(long seed) {
+        this(seed, 48);
+    }
+
+    public NoiseChunkGenerator(long seed, int seaLevel) {
+        this.seed = seed;
+        this.seaLevel = seaLevel;
+        this.continents = new FractalNoise(seed, 4, 1.0 / 512);
+        this.detail = new FractalNoise(seed + 1, 4, 1.0 / 96);
+        this.mountains = new FractalNoise(seed + 2, 3, 1.0 / 256);
+        this.rivers = new FractalNoise(seed + 3, 2, 1.0 / 400);
+        this.temperature = new FractalNoise(seed + 4, 2, 1.0 / 700);
+        this.humidity = new FractalNoise(seed + 5, 2, 1.0 / 600);
+        this.caves = new SimplexNoise(seed + 6);
+        this.columns = new ColumnCache<>(COLUMN_CACHE_SIZE, this::computeColumn);
+    }
+
+    @Override
+    public String getId() { return "noise/" + seaLevel; }
+
+    @Override
+    public long getSeed() { return seed; }
+
+    public ColumnCache<Column> getColumnCache() { return columns; }
+
+    public Column getColumn(int chunkX, int chunkZ) {
+        return columns.get(chunkX, chunkZ);
+    }
+
+    private Column computeColumn(int chunkX, int chunkZ) {
+        Column column = new Column();
+        for (int z = 0; z < Chunk.SIZE; z++) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                int worldX = chunkX * Chunk.SIZE + x;
+                int worldZ = chunkZ * Chunk.SIZE + z;
+                double c = continents.noise(worldX, worldZ);
+                double height = seaLevel + c * 24 + detail.noise(worldX, worldZ) * 6;
+                if (c > 0) {
+                    double m = Math.max(0, mountains.noise(worldX, worldZ));
+                    height += m * m * 96 * Math.min(1, c * 4);
+                }
+                // Rivers cut a channel down to just below sea level, fading out at the banks
+                double r = Math.abs(rivers.noise(worldX, worldZ));
+                boolean river = false;
+                if (r < RIVER_BANK && height > seaLevel - 3) {
+                    double f = r / RIVER_BANK;
+                    height = (seaLevel - 3) + (height - (seaLevel - 3)) * f * f;
+                    river = r < RIVER_BED;
+                }
+                int h = Math.max(4, Math.min(Chunk.HEIGHT - 2, (int) Math.floor(height)));
+                int i = z * Chunk.SIZE + x;
+                column.height[i] = h;
+                column.biome[i] = biome(h, river, worldX, worldZ);
+            }
+        }
+        return column;
+    }
+
+    private Biome biome(int height, boolean river, int worldX, int worldZ) {
+        if (river) return Biome.RIVER;
+        if (height < seaLevel - 1) return Biome.OCEAN;
+        if (height <= seaLevel + 1) return Biome.BEACH;
+        if (height > seaLevel + 36) return Biome.MOUNTAINS;
+        if (temperature.noise(worldX, worldZ) > 0.25 && humidity.noise(worldX, worldZ) < 0) return Biome.DESERT;
+        return Biome.PLAINS;
+    }
+
+    @Override
+    public void generateStage(ChunkStatus stage, Chunk chunk) {
+        switch (stage) {
+            case NOISE: fillNoise(chunk); break;
+            case SURFACE: applySurface(chunk); break;
+            case CARVERS: carveCaves(chunk); break;
+            case DECORATION: placeBoulders(chunk); break;
+            default: break; // No light data yet; FULL only marks completion
+        }
+    }
+
+    private void fillNoise(Chunk chunk) {
+        Column column = columns.get(chunk.getX(), chunk.getZ());
+        int baseY = chunk.getY() * Chunk.HEIGHT;
+        for (int z = 0; z < Chunk.SIZE; z++) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                int height = column.height[z * Chunk.SIZE + x];
+                int top = Math.min(Chunk.HEIGHT - 1, Math.max(height, seaLevel) - baseY);
+                for (int y = 0; y <= top; y++) {
+                    // Above the terrain only reached up to sea level
+                    chunk.setBlock(x, y, z, Block.of(baseY + y > height ? Material.WATER : Material.STONE));
+                }
+            }
+        }
+    }
+
+    private void applySurface(Chunk chunk) {
+        Column column = columns.get(chunk.getX(), chunk.getZ());
+        int baseY = chunk.getY() * Chunk.HEIGHT;
+        for (int z = 0; z < Chunk.SIZE; z++) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                int i = z * Chunk.SIZE + x;
+                int height = column.height[i];
+                Biome biome = column.biome[i];
+                // Grass does not grow underwater
+                Material surface = height < seaLevel && biome.surface == Material.GRASS ? biome.filler : biome.surface;
+                int from = Math.max(0, height - FILLER_DEPTH + 1 - baseY);
+                int to = Math.min(Chunk.HEIGHT - 1, height - baseY);
+                for (int y = from; y <= to; y++) {
+                    chunk.setBlock(x, y, z, Block.of(baseY + y == height ? surface : biome.filler));
+                }
+            }
+        }
+    }
+
+    // Tunnels where 3D noise crosses zero, kept below the surface layers and clear of the sea floor
+    private void carveCaves(Chunk chunk) {
+        Column column = columns.get(chunk.getX(), chunk.getZ());
+        int baseY = chunk.getY() * Chunk.HEIGHT;
+        for (int z = 0; z < Chunk.SIZE; z++) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                int height = column.height[z * Chunk.SIZE + x];
+                int ceiling = Math.min(height - 6, seaLevel - 8) - baseY;
+                for (int y = Math.max(4 - baseY, 0); y <= Math.min(Chunk.HEIGHT - 1, ceiling); y++) {
+                    double worldX = chunk.getX() * Chunk.SIZE + x, worldZ = chunk.getZ() * Chunk.SIZE + z;
+                    double n = caves.noise(worldX / 40.0, (baseY + y) / 20.0, worldZ / 40.0);
+                    if (Math.abs(n) < CAVE_THRESHOLD) chunk.setBlock(x, y, z, Block.of(Material.AIR));
+                }
+            }
+        }
+    }
+
+    private void placeBoulders(Chunk chunk) {
+        int baseY = chunk.getY() * Chunk.HEIGHT;
+        for (int rx = chunk.getX() - 1; rx <= chunk.getX() + 1; rx++) {
+            for (int rz = chunk.getZ() - 1; rz <= chunk.getZ() + 1; rz++) {
+                Column column = columns.get(rx, rz);
+                long h = hash(rx, rz);
+                int count = (int) (h & 1);
+                for (int b = 0; b < count; b++) {
+                    h = h * 6364136223846793005L + 1442695040888963407L;
+                    int bx = (int) (h >>> 33) & 15, bz = (int) (h >>> 41) & 15;
+                    int radius = 1 + (int) ((h >>> 49) % MAX_BOULDER_RADIUS);
+                    Biome biome = column.getBiome(bx, bz);
+                    if (biome != Biome.PLAINS && biome != Biome.MOUNTAINS) continue;
+                    int cx = rx * Chunk.SIZE + bx, cy = column.getHeight(bx, bz) + 1, cz = rz * Chunk.SIZE + bz;
+                    placeSphere(chunk, baseY, cx, cy, cz, radius);
+                }
+            }
+        }
+    }
+
+    // Writes the part of a stone sphere that falls inside this chunk
+    private static void placeSphere(Chunk chunk, int baseY, int cx, int cy, int cz, int radius) {
+        int originX = chunk.getX() * Chunk.SIZE, originZ = chunk.getZ() * Chunk.SIZE;
+        int r2 = radius * radius;
+        for (int x = Math.max(cx - radius, originX); x <= Math.min(cx + radius, originX + Chunk.SIZE - 1); x++)
+            for (int z = Math.max(cz - radius, originZ); z <= Math.min(cz + radius, originZ + Chunk.SIZE - 1); z++)
+                for (int y = Math.max(cy - radius, baseY); y <= Math.min(cy + radius, baseY + Chunk.HEIGHT - 1); y++) {
+                    int dx = x - cx, dy = y - cy, dz = z - cz;
+                    if (dx * dx + dy * dy + dz * dz <= r2) chunk.setBlock(x - originX, y - baseY, z - originZ, Block.of(Material.STONE));
+                }
+    }
+
+    private long hash(int chunkX, int chunkZ) {
+        long h = seed ^ (chunkX * 0x9E3779B97F4A7C15L) ^ (chunkZ * 0xC2B2AE3D27D4EB4FL);
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
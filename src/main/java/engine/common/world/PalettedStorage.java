@@ -0,0 +1,190 @@
+package engine.common.world;
+
+import java.util.Arrays;
+
+import engine.common.block.Material;
+
+/**
+ * Palette-compressed material storage.
+ * Each entry is an index into a small palette of materials, bit-packed into a long[].
+ * The index width grows as distinct materials are added; a storage holding a single
+ * material keeps no index array at all.
+ *
+ * Writers must be externally synchronized. Readers may run concurrently with a writer:
+ * palette, width and data are swapped together, so a racing read sees either the old
+ * or the new value, never a torn layout.
+ */
+public class PalettedStorage {
+    private static final class State {
+        final Material[] palette;
+        final int paletteSize;
+        final int bits; // 0 = single-value mode, data is null
+        final long[] data;
+        State(Material[] palette, int paletteSize, int bits, long[] data) {
+            this.palette = palette;
+            this.paletteSize = paletteSize;
+            this.bits = bits;
+            this.data = data;
+        }
+    }
+
+    private final int size;
+    private volatile State state;
+
+    public PalettedStorage(int size, Material initial) {
+        this.size = size;
+        this.state = new State(new Material[] { initial }, 1, 0, null);
+    }
+
+    /** Independent copy; the state is cloned so later writes to either side do not leak. */
+    public PalettedStorage copy() {
+        State s = state;
+        PalettedStorage copy = new PalettedStorage(size, s.palette[0]);
+        copy.state = new State(s.palette.clone(), s.paletteSize, s.bits, s.data == null ? null : s.data.clone());
+        return copy;
+    }
+
+    public int size() { return size; }
+    public int getBits() { return state.bits; }
+    public int getPaletteSize() { return state.paletteSize; }
+    public boolean isSingleValue() { return state.bits == 0; }
+
+    /** Approximate heap footprint in bytes (object headers, palette and index array). */
+    public long estimateMemoryUsage() {
+        State s = state;
+        long bytes = 16 + 32 + 16 + 4L * s.palette.length;
+        if (s.data != null) bytes += 16 + 8L * s.data.length;
+        return bytes;
+    }
+
+    public Material get(int index) {
+        State s = state;
+        if (s.bits == 0) return s.palette[0];
+        return s.palette[read(s.data, s.bits, index)];
+    }
+
+    /** Writes the material id of every entry to {@code out}, unpacking a whole long at a time. */
+    public void writeIds(byte[] out, int offset) {
+        State s = state;
+        if (s.bits == 0) {
+            Arrays.fill(out, offset, offset + size, (byte) s.palette[0].getId());
+            return;
+        }
+        byte[] ids = new byte[s.paletteSize];
+        for (int i = 0; i < s.paletteSize; i++) ids[i] = (byte) s.palette[i].getId();
+        int valuesPerLong = 64 / s.bits;
+        long mask = (1L << s.bits) - 1;
+        for (int slot = 0, i = 0; i < size; slot++) {
+            long word = s.data[slot];
+            for (int j = 0; j < valuesPerLong && i < size; j++, i++, word >>>= s.bits)
+                out[offset + i] = ids[(int) (word & mask)];
+        }
+    }
+
+    /**
+     * Replaces every entry with the materials of {@code size} ids read from {@code in}, building
+     * the palette and packed indices in one pass instead of growing them entry by entry.
+     */
+    public void readIds(byte[] in, int offset) {
+        // Raw id -> palette index; unknown ids share the palette entry of the material they map to
+        int[] lookup = new int[256];
+        Arrays.fill(lookup, -1);
+        Material[] palette = new Material[1];
+        int paletteSize = 0;
+        for (int i = 0; i < size; i++) {
+            int raw = in[offset + i] & 0xFF;
+            if (lookup[raw] >= 0) continue;
+            Material m = Material.fromId(raw);
+            int id = 0;
+            while (id < paletteSize && palette[id] != m) id++;
+            if (id == paletteSize) {
+                if (paletteSize == palette.length) palette = Arrays.copyOf(palette, palette.length * 2);
+                palette[paletteSize++] = m;
+            }
+            lookup[raw] = id;
+        }
+        if (paletteSize == 1) {
+            state = new State(palette, 1, 0, null);
+            return;
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+        long[] data = new long[longsFor(bits)];
+        int valuesPerLong = 64 / bits;
+        for (int slot = 0, i = 0; i < size; slot++) {
+            long word = 0;
+            for (int j = 0; j < valuesPerLong && i < size; j++, i++)
+                word |= (long) lookup[in[offset + i] & 0xFF] << (j * bits);
+            data[slot] = word;
+        }
+        state = new State(palette, paletteSize, bits, data);
+    }
+
+    public void set(int index, Material material) {
+        State s = state;
+        int id = paletteIndex(s, material);
+        if (id < 0) {
+            s = addToPalette(s, material);
+            id = s.paletteSize - 1;
+        }
+        if (s.bits == 0) return; // id is 0, the only value
+        write(s.data, s.bits, index, id);
+    }
+
+    private static int paletteIndex(State s, Material material) {
+        for (int i = 0; i < s.paletteSize; i++) {
+            if (s.palette[i] == material) return i;
+        }
+        return -1;
+    }
+
+    private State addToPalette(State s, Material material) {
+        Material[] palette = s.palette;
+        if (s.paletteSize == palette.length) {
+            palette = new Material[palette.length * 2];
+            System.arraycopy(s.palette, 0, palette, 0, s.paletteSize);
+        }
+        palette[s.paletteSize] = material;
+        int paletteSize = s.paletteSize + 1;
+        int bits = s.bits;
+        long[] data = s.data;
+        if (paletteSize > (1 << bits)) {
+            bits = s.bits + 1;
+            data = repack(s, bits);
+        }
+        State next = new State(palette, paletteSize, bits, data);
+        state = next;
+        return next;
+    }
+
+    // Repack every entry with a wider index; entries keep their palette ids
+    private long[] repack(State s, int newBits) {
+        long[] newData = new long[longsFor(newBits)];
+        if (s.bits != 0) {
+            int valuesPerLong = 64 / newBits;
+            for (int i = 0; i < size; i++) {
+                int value = read(s.data, s.bits, i);
+                newData[i / valuesPerLong] |= (long) value << ((i % valuesPerLong) * newBits);
+            }
+        }
+        return newData;
+    }
+
+    private int longsFor(int bits) {
+        int valuesPerLong = 64 / bits;
+        return (size + valuesPerLong - 1) / valuesPerLong;
+    }
+
+    private static int read(long[] data, int bits, int index) {
+        int valuesPerLong = 64 / bits;
+        int shift = (index % valuesPerLong) * bits;
+        return (int) ((data[index / valuesPerLong] >>> shift) & ((1L << bits) - 1));
+    }
+
+    private static void write(long[] data, int bits, int index, int value) {
+        int valuesPerLong = 64 / bits;
+        int slot = index / valuesPerLong;
+        int shift = (index % valuesPerLong) * bits;
+        long mask = ((1L << bits) - 1) << shift;
+        data[slot] = (data[slot] & ~mask) | ((long) value << shift);
+    }
+}
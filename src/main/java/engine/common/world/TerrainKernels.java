@@ -0,0 +1,77 @@
+package engine.common.world;
+
+import engine.common.block.Material;
+
+/**
+ * Inner loops of column-based terrain generation, over all 256 columns of a chunk at once.
+ * Columns and layer entries are indexed z * 16 + x, matching a horizontal layer of a
+ * {@link ChunkSection}.
+ *
+ * This is the scalar implementation. Builds with the {@code vector} profile also contain
+ * a {@code jdk.incubator.vector} one, picked up by {@link #get()} when the module is
+ * available at run time (with {@code --add-modules jdk.incubator.vector}). Both must
+ * produce identical output: stored chunks are deltas against what the generator makes.
+ */
+public class TerrainKernels {
+    public static final int COLUMNS = Chunk.SIZE * Chunk.SIZE;
+
+    static final byte AIR = (byte) Material.AIR.getId();
+    static final byte DIRT = (byte) Material.DIRT.getId();
+    static final byte STONE = (byte) Material.STONE.getId();
+    static final byte WATER = (byte) Material.WATER.getId();
+
+    private static final String VECTOR_IMPL = "engine.common.world.VectorTerrainKernels";
+    private static final TerrainKernels INSTANCE = load();
+
+    protected TerrainKernels() {
+    }
+
+    public static TerrainKernels get() {
+        return INSTANCE;
+    }
+
+    private static TerrainKernels load() {
+        if (Boolean.parseBoolean(System.getProperty("voxel.vectorKernels", "true"))) {
+            try {
+                return (TerrainKernels) Class.forName(VECTOR_IMPL).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Not built with the vector profile, or the incubator module is not enabled
+            }
+        }
+        return new TerrainKernels();
+    }
+
+    public String getName() {
+        return "scalar";
+    }
+
+    /**
+     * Separable height field: {@code out[z * 16 + x] = clamp(base + (int) (xTerm[x] + zTerm[z]), min, max)}.
+     */
+    public void columnHeights(double[] xTerm, double[] zTerm, int base, int min, int max, int[] out) {
+        for (int z = 0; z < Chunk.SIZE; z++) {
+            for (int x = 0; x < Chunk.SIZE; x++) {
+                int h = base + (int) (xTerm[x] + zTerm[z]);
+                out[z * Chunk.SIZE + x] = Math.max(min, Math.min(max, h));
+            }
+        }
+    }
+
+    /**
+     * Material ids of one layer at {@code worldY} into {@code out[offset ..]}: {@code surface}
+     * at the column height, three layers of dirt below it, stone further down, and water up
+     * to {@code seaLevel} above it.
+     */
+    public void fillLayer(int[] heights, byte[] surface, int worldY, int seaLevel, byte[] out, int offset) {
+        byte above = worldY <= seaLevel ? WATER : AIR;
+        for (int i = 0; i < COLUMNS; i++) {
+            int h = heights[i];
+            byte id;
+            if (worldY > h) id = above;
+            else if (worldY == h) id = surface[i];
+            else if (worldY > h - 3) id = DIRT;
+            else id = STONE;
+            out[offset + i] = id;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package engine.common.world;
+
+import engine.server.ChunkGenerator;
+
+/** Empty world with no blocks at all, e.g. for lobbies built by hand or by plugins. */
+public class VoidChunkGenerator implements ChunkGenerator {
+    @Override
+    public String getId() { return "void"; }
+
+    @Override
+    public ChunkTemplate getTemplate() { return ChunkTemplate.empty(); }
+
+    @Override
+    public void generate(Chunk chunk) {
+        chunk.applyTemplate(ChunkTemplate.empty());
+    }
+}
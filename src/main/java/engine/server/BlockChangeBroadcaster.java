@@ -0,0 +1,115 @@
+package engine.server;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import engine.common.network.CompressionCodec;
+import engine.common.network.packet.MultiBlockChangePacket;
+import engine.common.network.packet.SectionDataPacket;
+import engine.common.util.Long2ObjectHashMap;
+import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
+import engine.common.world.ChunkSection;
+
+/**
+ * Block changes gathered per chunk section over a tick and sent, at tick end, to every
+ * connection that already has the chunk: one {@link MultiBlockChangePacket} per changed
+ * section, or the whole section once more than {@code resendThreshold} of its blocks
+ * changed. Ids are read from the chunk when flushing, so a block changed several times
+ * in a tick is sent once with its final state.
+ */
+public class BlockChangeBroadcaster {
+    private final int resendThreshold;
+
+    // Guarded by this: chunks with changes since the last flush
+    private Long2ObjectHashMap<ChunkChanges> changes = new Long2ObjectHashMap<>();
+
+    private long changePackets, sectionPackets, sentBlocks;
+
+    private static final class ChunkChanges {
+        final Chunk chunk;
+        final BitSet[] sections = new BitSet[Chunk.SECTIONS];
+
+        ChunkChanges(Chunk chunk) { this.chunk = chunk; }
+    }
+
+    public BlockChangeBroadcaster(int resendThreshold) {
+        if (resendThreshold < 1 || resendThreshold > ChunkSection.VOLUME)
+            throw new IllegalArgumentException("Resend threshold must be in 1.." + ChunkSection.VOLUME + ": " + resendThreshold);
+        this.resendThreshold = resendThreshold;
+    }
+
+    /** Records a block that changed in {@code chunk}; call after the change was applied. */
+    public synchronized void record(Chunk chunk, int x, int y, int z) {
+        ChunkChanges entry = changes.computeIfAbsent(ChunkPos.of(chunk), k -> new ChunkChanges(chunk));
+        int s = y >> 4;
+        BitSet section = entry.sections[s];
+        if (section == null) section = entry.sections[s] = new BitSet(ChunkSection.VOLUME);
+        section.set(MultiBlockChangePacket.pack(x, y & 15, z));
+    }
+
+    /** Sends everything recorded since the last flush to the viewers that have each chunk. Called once per tick. */
+    public void flush(Collection<ChunkSendQueue> queues) {
+        List<ChunkChanges> batch;
+        synchronized (this) {
+            if (changes.isEmpty()) return;
+            batch = changes.values();
+            changes = new Long2ObjectHashMap<>();
+        }
+        List<Connection> viewers = new ArrayList<>();
+        for (ChunkChanges entry : batch) {
+            Chunk chunk = entry.chunk;
+            viewers.clear();
+            for (ChunkSendQueue queue : queues) {
+                if (queue.hasSent(chunk.getX(), chunk.getY(), chunk.getZ())) viewers.add(queue.getConnection());
+            }
+            if (viewers.isEmpty()) continue; // Chunks still queued are sent whole, edits included
+            for (int s = 0; s < Chunk.SECTIONS; s++) {
+                BitSet changed = entry.sections[s];
+                if (changed == null) continue;
+                Object packet = changed.cardinality() > resendThreshold ? sectionPacket(chunk, s) : changePacket(chunk, s, changed);
+                for (Connection connection : viewers) connection.sendTCP(packet);
+            }
+        }
+    }
+
+    private MultiBlockChangePacket changePacket(Chunk chunk, int s, BitSet changed) {
+        int count = changed.cardinality();
+        short[] positions = new short[count];
+        byte[] ids = new byte[count];
+        int baseY = s * ChunkSection.SIZE;
+        synchronized (chunk) {
+            int i = 0;
+            for (int p = changed.nextSetBit(0); p >= 0; p = changed.nextSetBit(p + 1), i++) {
+                short position = (short) p;
+                positions[i] = position;
+                ids[i] = (byte) chunk.getMaterial(MultiBlockChangePacket.getX(position), baseY + MultiBlockChangePacket.getY(position),
+                    MultiBlockChangePacket.getZ(position)).getId();
+            }
+        }
+        synchronized (this) {
+            changePackets++;
+            sentBlocks += count;
+        }
+        return new MultiBlockChangePacket(chunk.getX(), chunk.getY(), chunk.getZ(), s, positions, ids);
+    }
+
+    private SectionDataPacket sectionPacket(Chunk chunk, int s) {
+        byte[] ids = new byte[ChunkSection.VOLUME];
+        chunk.writeSection(s, ids, 0);
+        synchronized (this) {
+            sectionPackets++;
+        }
+        return new SectionDataPacket(chunk.getX(), chunk.getY(), chunk.getZ(), s, CompressionCodec.getDefault().compress(ids));
+    }
+
+    /** Multi-block change packets built, counted once however many viewers got them. */
+    public synchronized long getChangePackets() { return changePackets; }
+    /** Whole sections resent in place of a change packet. */
+    public synchronized long getSectionPackets() { return sectionPackets; }
+    public synchronized long getSentBlocks() { return sentBlocks; }
+}
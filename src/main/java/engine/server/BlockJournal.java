@@ -0,0 +1,309 @@
+package engine.server;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of block changes, so edits survive a crash without
+ * rewriting whole chunks.
+ *
+ * Appends are buffered in memory and written by a single thread. Whatever accumulates
+ * while a write is being forced to disk goes out in the next batch, so one fsync covers
+ * many edits. Each batch is framed as int length, int CRC32, then fixed-size records;
+ * replay stops at the first torn or corrupt batch.
+ *
+ * The log is split into numbered segments. A checkpoint rolls to a new segment, writes
+ * every dirty chunk, and then deletes the segments before it.
+ *
+ * A batch that fails to write is retried once any part of it that reached the segment
+ * is cut off, or in a new segment if that fails too, so a torn batch never stops replay
+ * of what follows. Changes appended meanwhile queue up behind it and {@link #sync()}
+ * keeps waiting.
+ */
+public class BlockJournal implements Closeable {
+    /** Receives replayed changes in the order they were appended. */
+    public interface Visitor {
+        void apply(int chunkX, int chunkY, int chunkZ, int blockIndex, int materialId);
+    }
+
+    private static final String PREFIX = "journal.";
+    private static final String SUFFIX = ".log";
+    // chunkX, chunkY, chunkZ, block index, material id
+    private static final int RECORD_SIZE = 4 + 4 + 4 + 2 + 1;
+    private static final int BATCH_HEADER = 8;
+    private static final long RETRY_DELAY_MS = Long.getLong("voxel.journalRetryMs", 1000);
+
+    private final Logger logger = new Logger("BlockJournal");
+    private final File dir;
+    private final Object lock = new Object();
+    // Guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(RECORD_SIZE * 256);
+    private long appended, synced, appendedAtRoll;
+    private boolean closed;
+    // Guarded by ioLock: the writer thread and roll() both touch the open segment
+    private final Object ioLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    // Set when a failed write could not be cut off; the next attempt starts a new segment
+    private boolean torn;
+    private final Thread writer;
+    private volatile long records, syncs, writeFailures;
+    private volatile boolean failing;
+
+    public BlockJournal(File dir) throws IOException {
+        this.dir = dir;
+        if (!dir.exists()) dir.mkdirs();
+        long[] existing = segments();
+        segment = existing.length == 0 ? 0 : existing[existing.length - 1] + 1;
+        channel = openSegment(segment);
+        writer = new Thread(this::writeLoop, "Block-Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Queues one change; returns without waiting for disk. */
+    public void append(int chunkX, int chunkY, int chunkZ, int blockIndex, int materialId) {
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("Journal is closed");
+            if (pending.remaining() < RECORD_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            pending.putInt(chunkX).putInt(chunkY).putInt(chunkZ).putShort((short) blockIndex).put((byte) materialId);
+            appended++;
+            lock.notifyAll();
+        }
+    }
+
+    /** Blocks until every change appended so far is on disk. */
+    public void sync() throws InterruptedException {
+        synchronized (lock) {
+            long target = appended;
+            while (synced < target && !closed) lock.wait();
+        }
+    }
+
+    private void writeLoop() {
+        ByteBuffer spare = ByteBuffer.allocate(pending.capacity());
+        while (true) {
+            ByteBuffer batch;
+            long target;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0) return; // Closed and drained
+                batch = pending;
+                pending = spare.capacity() >= batch.capacity() ? spare : ByteBuffer.allocate(batch.capacity());
+                pending.clear();
+                target = appended;
+            }
+            batch.flip();
+            while (true) {
+                try {
+                    writeBatch(batch);
+                    failing = false;
+                    break;
+                } catch (IOException e) {
+                    failing = true;
+                    writeFailures++;
+                    synchronized (lock) {
+                        if (closed) {
+                            logger.error("Failed to write journal batch on close; " + (appended - synced) + " changes are not journaled: " + e);
+                            return;
+                        }
+                        logger.error("Failed to write journal batch, retrying in " + RETRY_DELAY_MS + " ms: " + e);
+                        try {
+                            lock.wait(RETRY_DELAY_MS);
+                        } catch (InterruptedException ie) {
+                            return;
+                        }
+                    }
+                    batch.rewind();
+                }
+            }
+            batch.clear();
+            spare = batch;
+            synchronized (lock) {
+                synced = target;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(batch.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(BATCH_HEADER);
+        header.putInt(batch.remaining()).putInt((int) crc.getValue()).flip();
+        synchronized (ioLock) {
+            if (torn) {
+                // Replay stops at a torn batch, so nothing may follow one in the same segment
+                FileChannel next = openSegment(segment + 1);
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close journal segment " + segment + ": " + e);
+                }
+                channel = next;
+                segment++;
+                torn = false;
+            }
+            int count = batch.remaining() / RECORD_SIZE;
+            long start = channel.size();
+            try {
+                do {
+                    channel.write(new ByteBuffer[] { header, batch });
+                } while (batch.hasRemaining());
+                channel.force(false);
+            } catch (IOException e) {
+                // Cut off whatever part of the batch made it; only if that fails is a new segment needed
+                try {
+                    channel.truncate(start);
+                } catch (IOException truncateFailed) {
+                    torn = true;
+                }
+                throw e;
+            }
+            records += count;
+            syncs++;
+        }
+    }
+
+    /**
+     * Starts a new segment and returns its number. Changes appended before this call may
+     * still land in the new segment, which only means they are replayed once more.
+     * Nothing is rolled if the current segment has received no changes.
+     */
+    public long roll() throws IOException {
+        synchronized (lock) {
+            if (appended == appendedAtRoll) return segment;
+            appendedAtRoll = appended;
+        }
+        synchronized (ioLock) {
+            FileChannel next = openSegment(segment + 1);
+            channel.close();
+            channel = next;
+            torn = false;
+            return ++segment;
+        }
+    }
+
+    /** Deletes segments older than {@code segment}; call once their changes are in the region files. */
+    public void truncateBefore(long segment) {
+        for (long s : segments()) {
+            if (s >= segment) break;
+            if (!segmentFile(s).delete()) logger.warn("Could not delete journal segment " + s);
+        }
+    }
+
+    /** Replays every segment older than the one opened by this instance. Returns the number of changes. */
+    public long replay(Visitor visitor) throws IOException {
+        long replayed = 0;
+        for (long s : segments()) {
+            if (s >= segment) break;
+            replayed += replaySegment(segmentFile(s), visitor);
+        }
+        return replayed;
+    }
+
+    private long replaySegment(File file, Visitor visitor) throws IOException {
+        long replayed = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length, checksum;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length % RECORD_SIZE != 0) {
+                    logger.warn("Bad batch length " + length + " in " + file.getName() + "; ignoring the rest");
+                    break;
+                }
+                byte[] data = new byte[length];
+                try {
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    logger.warn("Torn batch at the end of " + file.getName() + "; ignoring it");
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                if ((int) crc.getValue() != checksum) {
+                    logger.warn("Checksum mismatch in " + file.getName() + "; ignoring the rest");
+                    break;
+                }
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                while (buf.hasRemaining()) {
+                    visitor.apply(buf.getInt(), buf.getInt(), buf.getInt(), buf.getShort() & 0xFFFF, buf.get());
+                    replayed++;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    private FileChannel openSegment(long s) throws IOException {
+        return FileChannel.open(segmentFile(s).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private File segmentFile(long s) {
+        return new File(dir, PREFIX + s + SUFFIX);
+    }
+
+    private long[] segments() {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) return new long[0];
+        long[] out = new long[files.length];
+        int n = 0;
+        for (File f : files) {
+            try {
+                out[n] = Long.parseLong(f.getName().substring(PREFIX.length(), f.getName().length() - SUFFIX.length()));
+                n++;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        out = Arrays.copyOf(out, n);
+        Arrays.sort(out);
+        return out;
+    }
+
+    public long getRecordCount() { return records; }
+    /** Failed batch writes so far, counting each retry. */
+    public long getWriteFailureCount() { return writeFailures; }
+    /** True while the last batch write failed and is waiting to be retried. */
+    public boolean isFailing() { return failing; }
+    /** Number of fsyncs; records per sync shows how well edits are being grouped. */
+    public long getSyncCount() { return syncs; }
+
+    /** Writes out everything queued, then closes the current segment. */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package engine.server;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit/miss counters for the two in-memory chunk tiers, and for the compressed payloads
+ * hot chunks keep for sending.
+ */
+public class ChunkCacheStats {
+    private final LongAdder hotHits = new LongAdder();
+    private final LongAdder coldHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coldPayloadServes = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+    private final LongAdder payloadHits = new LongAdder();
+    private final LongAdder payloadBuilds = new LongAdder();
+    private final LongAdder payloadBuildNanos = new LongAdder();
+
+    void recordHotHit() { hotHits.increment(); }
+    /** A cold chunk was re-inflated into the hot tier. */
+    void recordColdHit() { coldHits.increment(); }
+    /** Neither tier had the chunk. */
+    void recordMiss() { misses.increment(); }
+    /** A cold chunk's bytes were sent without inflating it. */
+    void recordColdPayloadServe() { coldPayloadServes.increment(); }
+    void recordDemotion() { demotions.increment(); }
+    /** A hot chunk's payload was sent from its cache. */
+    void recordPayloadHit() { payloadHits.increment(); }
+    /** A hot chunk's payload had to be encoded and compressed. */
+    void recordPayloadBuild(long nanos) {
+        payloadBuilds.increment();
+        payloadBuildNanos.add(nanos);
+    }
+
+    public long getHotHits() { return hotHits.sum(); }
+    public long getColdHits() { return coldHits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getColdPayloadServes() { return coldPayloadServes.sum(); }
+    public long getDemotions() { return demotions.sum(); }
+    public long getPayloadHits() { return payloadHits.sum(); }
+    public long getPayloadBuilds() { return payloadBuilds.sum(); }
+    public long getPayloadBuildNanos() { return payloadBuildNanos.sum(); }
+
+    /** Encoding time the payload cache avoided, estimated from the average build. */
+    public long getPayloadNanosSaved() {
+        long builds = payloadBuilds.sum();
+        return builds == 0 ? 0 : payloadHits.sum() * (payloadBuildNanos.sum() / builds);
+    }
+}
@@ -0,0 +1,106 @@
+package engine.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.common.network.CompressionCodec;
+import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
+import engine.server.storage.RegionStorage;
+
+/**
+ * Builds a preset compression dictionary from the chunks of an existing world, for
+ * {@code -Dvoxel.compressionDictionary=<file>} on both server and client.
+ *
+ * The dictionary is the most frequent 8-byte sequences of the sampled section payloads,
+ * laid out least frequent first: deflate finds the end of the dictionary cheapest to
+ * reference, so the most useful strings go last.
+ *
+ * Usage: {@code ChunkDictionaryTrainer <worldDir> <outFile> [maxSamples] [dictionaryBytes]},
+ * with the generator chosen by the same {@code voxel.generator} / {@code voxel.seed}
+ * properties as the server.
+ */
+public class ChunkDictionaryTrainer {
+    private static final int GRAM = 8;
+    // zlib only looks back 32 KB, so a larger dictionary is never used
+    public static final int MAX_DICTIONARY = 32 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ChunkDictionaryTrainer <worldDir> <outFile> [maxSamples] [dictionaryBytes]");
+            return;
+        }
+        Logger logger = new Logger("DictionaryTrainer");
+        File worldDir = new File(args[0]);
+        int maxSamples = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : MAX_DICTIONARY;
+        ChunkGenerator generator = VoxelServer.createGenerator();
+        ChunkRecordCodec codec = new ChunkRecordCodec(generator);
+        RegionStorage storage = new RegionStorage(worldDir);
+        List<byte[]> samples = new ArrayList<>();
+        try {
+            long[] keys = storage.listChunks();
+            // Spread the samples over the whole world rather than its first regions
+            int stride = Math.max(1, keys.length / maxSamples);
+            for (int i = 0; i < keys.length && samples.size() < maxSamples; i += stride) {
+                int x = ChunkPos.getX(keys[i]), y = ChunkPos.getY(keys[i]), z = ChunkPos.getZ(keys[i]);
+                byte[] payload = storage.readPayload(x, y, z);
+                if (payload == null) continue;
+                Chunk chunk = codec.decode(x, y, z, payload);
+                samples.add(chunk.encodeSections());
+            }
+        } finally {
+            storage.close();
+        }
+        if (samples.isEmpty()) {
+            logger.error("No chunks stored in " + worldDir);
+            return;
+        }
+        byte[] dictionary = train(samples, size);
+        Files.write(new File(args[1]).toPath(), dictionary);
+
+        CompressionCodec plain = new CompressionCodec(CompressionCodec.getDefault().getLevel(), null);
+        CompressionCodec trained = new CompressionCodec(CompressionCodec.getDefault().getLevel(), dictionary);
+        long raw = 0, before = 0, after = 0;
+        for (byte[] sample : samples) {
+            raw += sample.length;
+            before += plain.compress(sample).length;
+            after += trained.compress(sample).length;
+        }
+        logger.info("Wrote " + dictionary.length + " byte dictionary from " + samples.size() + " chunks to " + args[1]
+            + "; samples compress to " + before + " bytes without it and " + after + " with it (raw " + raw + ")");
+    }
+
+    /** Returns up to {@code size} bytes of frequent sequences from {@code samples}. */
+    public static byte[] train(List<byte[]> samples, int size) {
+        size = Math.min(size, MAX_DICTIONARY);
+        Map<Long, int[]> counts = new HashMap<>();
+        for (byte[] sample : samples) {
+            for (int i = 0; i + GRAM <= sample.length; i += GRAM / 2) {
+                counts.computeIfAbsent(gram(sample, i), k -> new int[1])[0]++;
+            }
+        }
+        List<Map.Entry<Long, int[]>> ranked = new ArrayList<>(counts.entrySet());
+        ranked.sort((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]));
+        int grams = Math.min(ranked.size(), size / GRAM);
+        byte[] dictionary = new byte[grams * GRAM];
+        // Most frequent at the end, nearest to the data
+        for (int i = 0; i < grams; i++) {
+            long g = ranked.get(i).getKey();
+            int offset = dictionary.length - (i + 1) * GRAM;
+            for (int b = 0; b < GRAM; b++) dictionary[offset + b] = (byte) (g >>> (56 - 8 * b));
+        }
+        return dictionary;
+    }
+
+    private static long gram(byte[] data, int offset) {
+        long g = 0;
+        for (int b = 0; b < GRAM; b++) g = (g << 8) | (data[offset + b] & 0xFF);
+        return g;
+    }
+}
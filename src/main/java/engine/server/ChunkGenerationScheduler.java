@@ -0,0 +1,202 @@
+package engine.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import engine.common.util.Long2ObjectHashMap;
+import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
+
+/**
+ * Front door for chunk generation and loading on behalf of players.
+ *
+ * Keeps one future per coordinate, so concurrent requests share the work. Queued
+ * requests start nearest-first: priority is the distance to the closest interested
+ * player, recomputed by {@link #reprioritize()} as players move, which also cancels
+ * requests nobody is near any more. At most {@code maxInFlight} requests run at once
+ * and at most {@code maxQueued} wait; past that {@link #request} refuses new work so
+ * callers retry later instead of piling up an unbounded backlog.
+ *
+ * Distance is checked once more as a request starts, but a started request always runs
+ * to completion: it is a single chunk's load or generation, and its result stays cached
+ * for the next player who comes near.
+ */
+public class ChunkGenerationScheduler {
+    /** Distance in chunks from a chunk to the nearest player that wants it. */
+    public interface Interest {
+        double distance(int chunkX, int chunkY, int chunkZ);
+    }
+
+    private static final class Request implements Comparable<Request> {
+        final int x, y, z;
+        final long key;
+        final long sequence;
+        double priority;
+        final CompletableFuture<Chunk> future = new CompletableFuture<>();
+
+        Request(int x, int y, int z, long sequence) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.key = ChunkPos.pack(x, y, z);
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            int c = Double.compare(priority, other.priority);
+            return c != 0 ? c : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final World world;
+    private final ChunkGenerator generator;
+    private final Interest interest;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final double cancelDistance;
+
+    private final Object lock = new Object();
+    // Queued and running requests; guarded by lock
+    private final Long2ObjectHashMap<Request> requests = new Long2ObjectHashMap<>();
+    private final PriorityQueue<Request> queue = new PriorityQueue<>();
+    private int running;
+    private long sequence;
+    // One thread runs the dispatch loop at a time; completions landing meanwhile ask it to go round again
+    private boolean dispatching, redispatch;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ChunkGenerationScheduler(World world, ChunkGenerator generator, Interest interest,
+            int maxInFlight, int maxQueued, double cancelDistance) {
+        this.world = world;
+        this.generator = generator;
+        this.interest = interest;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.cancelDistance = cancelDistance;
+    }
+
+    /**
+     * Returns a future for the chunk, sharing any request already made for it, or null if
+     * the queue is full. The future is cancelled if players move away before it starts.
+     */
+    public CompletableFuture<Chunk> request(int x, int y, int z) {
+        Chunk loaded = world.getLoadedChunk(x, y, z);
+        if (loaded != null) return CompletableFuture.completedFuture(loaded);
+        long key = ChunkPos.pack(x, y, z);
+        Request request;
+        synchronized (lock) {
+            request = requests.get(key);
+            if (request != null) {
+                deduplicated.increment();
+                return request.future;
+            }
+            if (queue.size() >= maxQueued) {
+                rejected.increment();
+                return null;
+            }
+            request = new Request(x, y, z, sequence++);
+            request.priority = interest.distance(x, y, z);
+            requests.put(key, request);
+            queue.add(request);
+        }
+        dispatch();
+        return request.future;
+    }
+
+    // A loop rather than recursion: futures that are already complete (loaded chunks, templates)
+    // run the completion inline, which would otherwise nest a dispatch per queued request
+    private void dispatch() {
+        synchronized (lock) {
+            if (dispatching) {
+                redispatch = true;
+                return;
+            }
+            dispatching = true;
+        }
+        while (true) {
+            Request next;
+            boolean outOfRange;
+            synchronized (lock) {
+                if (running >= maxInFlight || queue.isEmpty()) {
+                    if (!redispatch) {
+                        dispatching = false;
+                        return;
+                    }
+                    redispatch = false;
+                    continue;
+                }
+                next = queue.poll();
+                // Players may have moved away since the last reprioritize
+                outOfRange = interest.distance(next.x, next.y, next.z) > cancelDistance;
+                if (outOfRange) requests.remove(next.key, next);
+                else running++;
+            }
+            if (outOfRange) {
+                cancelled.increment();
+                next.future.cancel(false);
+                continue;
+            }
+            world.getOrCreateChunkAsync(next.x, next.y, next.z, generator, null).whenComplete((chunk, error) -> {
+                synchronized (lock) {
+                    running--;
+                    requests.remove(next.key, next);
+                }
+                if (error != null) {
+                    next.future.completeExceptionally(error);
+                } else {
+                    completed.increment();
+                    next.future.complete(chunk);
+                }
+                dispatch();
+            });
+        }
+    }
+
+    /** Re-sorts queued requests by current player distance and cancels those out of range. Started requests are left to finish. */
+    public void reprioritize() {
+        List<Request> dropped = new ArrayList<>();
+        synchronized (lock) {
+            if (queue.isEmpty()) return;
+            List<Request> queued = new ArrayList<>(queue);
+            queue.clear();
+            for (Request request : queued) {
+                request.priority = interest.distance(request.x, request.y, request.z);
+                if (request.priority > cancelDistance) {
+                    requests.remove(request.key, request);
+                    dropped.add(request);
+                } else {
+                    queue.add(request);
+                }
+            }
+        }
+        for (Request request : dropped) {
+            cancelled.increment();
+            request.future.cancel(false);
+        }
+    }
+
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public int getRunningCount() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    public long getCompletedCount() { return completed.sum(); }
+    public long getDeduplicatedCount() { return deduplicated.sum(); }
+    public long getCancelledCount() { return cancelled.sum(); }
+    public long getRejectedCount() { return rejected.sum(); }
+}
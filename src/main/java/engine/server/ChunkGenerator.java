@@ -1,7 +1,34 @@
 package engine.server;
 
 import engine.common.world.Chunk;
+import engine.common.world.ChunkTemplate;
 
 public interface ChunkGenerator {
     void generate(Chunk chunk);
-}
\ No newline at end of file
+
+    /**
+     * Output shared by every chunk, or null if it depends on position. Must match what
+     * {@link #generate} produces; the same instance should be returned each time so
+     * chunks share its sections.
+     */
+    default ChunkTemplate getTemplate() { return null; }
+
+    /** Fills a fresh chunk, copying the template when there is one. Use instead of {@link #generate}. */
+    default void populate(Chunk chunk) {
+        ChunkTemplate template = getTemplate();
+        if (template != null) chunk.applyTemplate(template);
+        else generate(chunk);
+    }
+
+    /**
+     * Identifies the generator and any settings that shape its output. Together with
+     * {@link #getVersion()} and {@link #getSeed()} it names a reproducible baseline,
+     * which lets unedited chunks be stored as a marker and regenerated on load.
+     */
+    default String getId() { return getClass().getName(); }
+
+    /** Bump whenever the output for the same id and seed changes. */
+    default int getVersion() { return 1; }
+
+    default long getSeed() { return 0L; }
+}
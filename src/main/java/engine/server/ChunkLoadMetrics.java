@@ -0,0 +1,40 @@
+package engine.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency counters for chunks read from disk (cold loads).
+ */
+public class ChunkLoadMetrics {
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+
+    public void recordLoad(long nanos) {
+        loads.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) { }
+    }
+
+    public void recordFailure() { failures.incrementAndGet(); }
+    /** A request that joined a load already in flight instead of starting another. */
+    public void recordDeduplicated() { deduplicated.incrementAndGet(); }
+
+    public long getLoads() { return loads.get(); }
+    public long getFailures() { return failures.get(); }
+    public long getDeduplicated() { return deduplicated.get(); }
+    public double getMeanMillis() {
+        long n = loads.get();
+        return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+    }
+    public double getMaxMillis() { return maxNanos.get() / 1e6; }
+
+    @Override
+    public String toString() {
+        return String.format("loads=%d dedup=%d failed=%d mean=%.2fms max=%.2fms",
+                getLoads(), getDeduplicated(), getFailures(), getMeanMillis(), getMaxMillis());
+    }
+}
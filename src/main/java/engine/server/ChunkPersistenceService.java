@@ -0,0 +1,163 @@
+package engine.server;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import engine.common.world.Chunk;
+import engine.server.storage.RegionStorage;
+
+/**
+ * Write-behind persistence: a background thread periodically writes chunks whose
+ * version moved past their last saved version, fsyncing once per batch.
+ * Edits made between two flushes are coalesced into a single write.
+ * With a {@link BlockJournal}, each flush is also a checkpoint that truncates the journal.
+ */
+public class ChunkPersistenceService {
+    private final Logger logger = new Logger("ChunkPersistence");
+    private final World world;
+    private final RegionStorage storage;
+    private final ChunkRecordCodec codec;
+    private final BlockJournal journal;
+    private final int batchSize;
+    // Read without the lock by saveAsync, which must not wait for a flush in progress
+    private volatile ScheduledExecutorService executor;
+    private int failures;
+
+    /** {@code journal} may be null. */
+    public ChunkPersistenceService(World world, RegionStorage storage, ChunkRecordCodec codec, BlockJournal journal, int batchSize) {
+        this.world = world;
+        this.storage = storage;
+        this.codec = codec;
+        this.journal = journal;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized void start(long intervalMs) {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Chunk-Persistence");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Background flush failed: " + e);
+        }
+    }
+
+    /** Writes every dirty loaded chunk; returns how many were written. */
+    public synchronized int flush() {
+        if (journal == null) return writeDirtyAndSync();
+        // Changes journaled before the roll are all applied to chunks, so writing the dirty ones covers them
+        long segment;
+        long journalFailuresBefore = journal.getWriteFailureCount();
+        try {
+            segment = journal.roll();
+        } catch (IOException e) {
+            logger.error("Failed to roll the block journal: " + e);
+            return writeDirtyAndSync();
+        }
+        int failuresBefore = failures;
+        int written = writeDirtyAndSync();
+        // Only once every write is durable, including unloads written by saveAsync since the last flush,
+        // and the journal itself is not failing
+        boolean journalHealthy = !journal.isFailing() && journal.getWriteFailureCount() == journalFailuresBefore;
+        if (failures == failuresBefore && journalHealthy) journal.truncateBefore(segment);
+        else if (!journalHealthy) logger.warn("Keeping block journal segments after a journal write failure");
+        return written;
+    }
+
+    // Always ends with a sync, even if nothing was written here, since save() itself never syncs
+    private int writeDirtyAndSync() {
+        int written = 0, inBatch = 0;
+        // Unloaded chunks are normally written by saveAsync; this retries any whose write failed
+        for (Collection<Chunk> tier : Arrays.asList(world.getChunks(), world.getPendingWrites())) {
+            for (Chunk chunk : tier) {
+                if (!chunk.isDirty()) continue;
+                if (save(chunk)) {
+                    written++;
+                    if (++inBatch >= batchSize) {
+                        sync();
+                        inBatch = 0;
+                    }
+                }
+            }
+        }
+        sync();
+        return written;
+    }
+
+    /** Writes one chunk now if it is dirty. */
+    public synchronized boolean save(Chunk chunk) {
+        // Capture the version before encoding so edits racing with the write keep the chunk dirty
+        long version = chunk.getVersion();
+        try {
+            world.beforeChunkWrite(chunk.getX(), chunk.getY(), chunk.getZ());
+            storage.writePayload(chunk.getX(), chunk.getY(), chunk.getZ(), codec.encode(chunk));
+        } catch (IOException e) {
+            logger.error("Failed to save chunk " + chunk.getX() + "," + chunk.getY() + "," + chunk.getZ() + ": " + e);
+            failures++;
+            return false;
+        }
+        chunk.markSaved(version);
+        world.afterChunkWrite(chunk);
+        return true;
+    }
+
+    /**
+     * Queues a write of one chunk on the persistence thread, so the caller never waits
+     * for disk or for a flush in progress. Runs inline if the background thread is not
+     * started, as in offline tools.
+     */
+    public void saveAsync(Chunk chunk) {
+        ScheduledExecutorService ex = executor;
+        if (ex != null) {
+            try {
+                ex.execute(() -> save(chunk));
+                return;
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the final flush picks it up from the world's pending writes
+                return;
+            }
+        }
+        save(chunk);
+    }
+
+    private void sync() {
+        try {
+            storage.flush();
+        } catch (IOException e) {
+            logger.error("Failed to sync region files: " + e);
+            failures++;
+        }
+    }
+
+    /** Stops the background thread and performs a final flush; returns once everything is on disk. */
+    public void shutdown() {
+        ScheduledExecutorService ex;
+        synchronized (this) {
+            ex = executor;
+            executor = null;
+        }
+        if (ex != null) {
+            ex.shutdown();
+            try {
+                ex.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int written = flush();
+        if (written > 0) logger.info("Saved " + written + " chunks on shutdown");
+    }
+}
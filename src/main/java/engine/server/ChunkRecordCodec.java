@@ -0,0 +1,113 @@
+package engine.server;
+
+import java.io.*;
+import java.util.BitSet;
+
+import engine.common.block.Block;
+import engine.common.block.Material;
+import engine.common.world.Chunk;
+
+/**
+ * Encodes chunks for region storage relative to the world generator.
+ * <ul>
+ * <li>FULL: plain {@link Chunk#encodeSections()} output. Its leading section mask byte is
+ * always 0, which keeps it distinguishable from the other kinds and from older saves.</li>
+ * <li>GENERATED: an empty payload, which region files store without any sectors; the
+ * chunk is regenerated on load.</li>
+ * <li>DELTA: a kind byte, then the edited positions and their materials.</li>
+ * </ul>
+ * Chunks whose edits are not tracked, or that were edited heavily, are stored FULL.
+ * The generator id, version and seed the baseline came from are kept once per world in
+ * {@value #GENERATOR_FILE}.
+ */
+public class ChunkRecordCodec {
+    static final String GENERATOR_FILE = "generator.dat";
+    static final byte DELTA = 1;
+    // Past this a delta costs about as much as the full sections
+    private static final int MAX_DELTA_ENTRIES = Integer.getInteger("voxel.maxDeltaEntries", 4096);
+
+    private final ChunkGenerator generator;
+
+    /** {@code generator} may be null, in which case every chunk is stored FULL. */
+    public ChunkRecordCodec(ChunkGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Records the generator for a new world. Throws if the world was saved against a
+     * different one: its unedited chunks are stored only as regeneration markers and
+     * deltas, and would come back as different terrain.
+     */
+    public void bind(File worldDir) throws IOException {
+        if (generator == null) return;
+        File file = new File(worldDir, GENERATOR_FILE);
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                String id = in.readUTF();
+                int version = in.readInt();
+                long seed = in.readLong();
+                if (!generator.getId().equals(id) || generator.getVersion() != version || generator.getSeed() != seed) {
+                    throw new IOException("World was saved with generator " + id + " v" + version + " seed " + seed
+                        + " but is being opened with " + generator.getId() + " v" + generator.getVersion() + " seed " + generator.getSeed()
+                        + "; open it with the generator it was saved with");
+                }
+            }
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeUTF(generator.getId());
+            out.writeInt(generator.getVersion());
+            out.writeLong(generator.getSeed());
+        }
+    }
+
+    /** True if chunks produced by {@code other} can be stored relative to this codec's generator. */
+    public boolean isBaseline(ChunkGenerator other) {
+        return generator != null && other != null
+            && generator.getId().equals(other.getId())
+            && generator.getVersion() == other.getVersion()
+            && generator.getSeed() == other.getSeed();
+    }
+
+    public byte[] encode(Chunk chunk) {
+        // Chunk methods lock the chunk, so the mask and the blocks are read from the same state
+        synchronized (chunk) {
+            BitSet edits = generator == null ? null : chunk.getEditMask();
+            if (edits == null || edits.cardinality() > MAX_DELTA_ENTRIES) return chunk.encodeSections();
+            if (edits.isEmpty()) return new byte[0];
+            byte[] data = new byte[5 + edits.cardinality() * 3];
+            data[0] = DELTA;
+            int count = edits.cardinality();
+            data[1] = (byte) (count >>> 24); data[2] = (byte) (count >>> 16);
+            data[3] = (byte) (count >>> 8);  data[4] = (byte) count;
+            int offset = 5;
+            for (int i = edits.nextSetBit(0); i >= 0; i = edits.nextSetBit(i + 1)) {
+                data[offset++] = (byte) (i >>> 8);
+                data[offset++] = (byte) i;
+                data[offset++] = (byte) chunk.getMaterial(i & 15, i >> 8, (i >> 4) & 15).getId();
+            }
+            return data;
+        }
+    }
+
+    /** Rebuilds a stored chunk; the result is clean and, unless it was stored FULL, tracks edits. */
+    public Chunk decode(int x, int y, int z, byte[] data) throws IOException {
+        if (data.length > 0 && data[0] == 0) return Chunk.fromSections(x, y, z, data);
+        if (data.length > 0 && data[0] != DELTA) throw new IOException("Unknown chunk record kind " + data[0]);
+        if (generator == null) throw new IOException("Chunk " + x + "," + y + "," + z + " is stored relative to a generator");
+        Chunk chunk = Chunk.createGenerated(x, y, z);
+        generator.populate(chunk);
+        chunk.trackEdits(null);
+        if (data.length > 0) {
+            int count = ((data[1] & 0xFF) << 24) | ((data[2] & 0xFF) << 16) | ((data[3] & 0xFF) << 8) | (data[4] & 0xFF);
+            if (data.length != 5 + count * 3) throw new IOException("Bad delta length " + data.length + " for " + count + " edits");
+            for (int offset = 5; offset < data.length; offset += 3) {
+                int index = ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+                Material material = Material.fromId(data[offset + 2]);
+                chunk.setBlock(index & 15, index >> 8, (index >> 4) & 15, Block.of(material));
+            }
+        }
+        chunk.markSaved(chunk.getVersion());
+        return chunk;
+    }
+}
@@ -0,0 +1,152 @@
+package engine.server;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import engine.common.network.packet.ChunkDataPacket;
+import engine.common.util.LongHashSet;
+import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
+
+/**
+ * Chunks waiting to be sent to one connection, drained nearest to the player first.
+ *
+ * Moving the view only queues chunks; {@link #drain} sends them from the tick thread
+ * within a per-tick chunk and byte budget, and not at all while the connection's TCP
+ * write buffer is filling up, so a join or a fast move never bursts past what the
+ * socket can take. Chunks that are not in memory yet are requested from the
+ * generation scheduler and sent by a later drain once they are.
+ */
+public class ChunkSendQueue {
+    private final Connection connection;
+    private final World world;
+    private final ChunkGenerationScheduler scheduler;
+    private final int viewRadius;
+
+    // Guarded by this: chunks queued or already sent, the queued subset, and those being loaded
+    private final LongHashSet claimed = new LongHashSet();
+    private final LongHashSet pending = new LongHashSet();
+    private final LongHashSet requested = new LongHashSet();
+    private int centerX, centerZ;
+    private boolean hasCenter;
+    // Pending keys nearest first; rebuilt when the view moves or chunks are queued
+    private long[] order = new long[0];
+    private boolean orderStale;
+
+    private long sentChunks, sentBytes, backpressureTicks;
+
+    public ChunkSendQueue(Connection connection, World world, ChunkGenerationScheduler scheduler, int viewRadius) {
+        this.connection = connection;
+        this.world = world;
+        this.scheduler = scheduler;
+        this.viewRadius = viewRadius;
+    }
+
+    /**
+     * Re-centers the view on a chunk: queues every chunk in range not sent yet, drops
+     * queued chunks that left it, and forgets sent chunks well outside it so they are
+     * sent again on return. The client keeps chunks at least one ring past the view.
+     */
+    public synchronized void setCenter(int chunkX, int chunkZ) {
+        if (hasCenter && chunkX == centerX && chunkZ == centerZ) return;
+        centerX = chunkX;
+        centerZ = chunkZ;
+        hasCenter = true;
+        for (long key : claimed.toArray()) {
+            int distance = distance(key);
+            if (pending.contains(key) ? distance > viewRadius : distance > viewRadius + 1) {
+                claimed.remove(key);
+                pending.remove(key);
+            }
+        }
+        for (int x = chunkX - viewRadius; x <= chunkX + viewRadius; x++) {
+            for (int z = chunkZ - viewRadius; z <= chunkZ + viewRadius; z++) {
+                long key = ChunkPos.pack(x, 0, z);
+                if (claimed.add(key)) pending.add(key);
+            }
+        }
+        orderStale = true;
+    }
+
+    /**
+     * Sends queued chunks nearest first until {@code maxChunks} or {@code maxBytes} is
+     * used up, or the connection has more than {@code maxBuffered} bytes waiting to be
+     * written. Called once per tick.
+     */
+    public synchronized void drain(int maxChunks, int maxBytes, int maxBuffered) {
+        if (pending.isEmpty()) return;
+        if (orderStale) sortPending();
+        int chunks = 0, bytes = 0;
+        for (long key : order) {
+            if (!pending.contains(key)) continue;
+            if (chunks >= maxChunks || bytes >= maxBytes) break;
+            if (connection.getTcpWriteBufferSize() > maxBuffered) {
+                backpressureTicks++;
+                break;
+            }
+            int x = ChunkPos.getX(key), y = ChunkPos.getY(key), z = ChunkPos.getZ(key);
+            byte[] payload = world.getChunkPayload(x, y, z);
+            if (payload == null) {
+                request(key, x, y, z);
+                continue;
+            }
+            connection.sendTCP(new ChunkDataPacket(x, y, z, payload));
+            pending.remove(key);
+            chunks++;
+            bytes += payload.length;
+        }
+        sentChunks += chunks;
+        sentBytes += bytes;
+    }
+
+    // Loads or generates a chunk so a later drain finds it in memory
+    private void request(long key, int x, int y, int z) {
+        if (requested.contains(key)) return;
+        CompletableFuture<Chunk> future = scheduler.request(x, y, z);
+        if (future == null) return; // Scheduler queue full; asked again on the next drain
+        requested.add(key);
+        future.whenComplete((chunk, error) -> {
+            synchronized (this) {
+                requested.remove(key);
+            }
+        });
+    }
+
+    private void sortPending() {
+        long[] keys = pending.toArray();
+        // Squared distance in the high bits, index in the low bits, so one sort orders nearest first
+        long[] sortable = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            long dx = ChunkPos.getX(keys[i]) - centerX, dz = ChunkPos.getZ(keys[i]) - centerZ;
+            sortable[i] = ((dx * dx + dz * dz) << 32) | i;
+        }
+        Arrays.sort(sortable);
+        order = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) order[i] = keys[(int) sortable[i]];
+        orderStale = false;
+    }
+
+    private int distance(long key) {
+        return Math.max(Math.abs(ChunkPos.getX(key) - centerX), Math.abs(ChunkPos.getZ(key) - centerZ));
+    }
+
+    /** True if the chunk was sent to this connection and not forgotten since, so it needs updates to it. */
+    public synchronized boolean hasSent(int chunkX, int chunkY, int chunkZ) {
+        long key = ChunkPos.pack(chunkX, chunkY, chunkZ);
+        return claimed.contains(key) && !pending.contains(key);
+    }
+
+    /** True if the chunk is in view of this connection, whether or not it was sent yet. */
+    public synchronized boolean isInView(int chunkX, int chunkZ) {
+        return hasCenter && Math.abs(chunkX - centerX) <= viewRadius && Math.abs(chunkZ - centerZ) <= viewRadius;
+    }
+
+    public Connection getConnection() { return connection; }
+    public synchronized int getPendingCount() { return pending.size(); }
+    public synchronized long getSentChunks() { return sentChunks; }
+    public synchronized long getSentBytes() { return sentBytes; }
+    /** Drains cut short because the connection's write buffer was too full. */
+    public synchronized long getBackpressureTicks() { return backpressureTicks; }
+}
@@ -0,0 +1,66 @@
+package engine.server;
+
+import engine.common.util.Long2ObjectHashMap;
+import engine.common.world.ChunkPos;
+
+/**
+ * Reference-counted residency tickets on chunk coordinates. A chunk stays loaded
+ * while it holds at least one ticket of any type; once the count reaches zero the
+ * world unloads it after a grace period.
+ */
+public class ChunkTicketManager {
+    public enum TicketType {
+        PLAYER,
+        SPAWN,
+        PLUGIN
+    }
+
+    // Per-chunk counts, one slot per ticket type
+    private final Long2ObjectHashMap<int[]> tickets = new Long2ObjectHashMap<>(1024);
+
+    public synchronized void addTicket(TicketType type, int x, int y, int z) {
+        long key = ChunkPos.pack(x, y, z);
+        int[] counts = tickets.get(key);
+        if (counts == null) {
+            counts = new int[TicketType.values().length];
+            tickets.put(key, counts);
+        }
+        counts[type.ordinal()]++;
+    }
+
+    public synchronized void removeTicket(TicketType type, int x, int y, int z) {
+        long key = ChunkPos.pack(x, y, z);
+        int[] counts = tickets.get(key);
+        if (counts == null || counts[type.ordinal()] == 0) return;
+        counts[type.ordinal()]--;
+        for (int c : counts) if (c > 0) return;
+        tickets.remove(key);
+    }
+
+    /** Adds a ticket to every chunk in the square of {@code radius} around (cx, cz). */
+    public synchronized void addArea(TicketType type, int cx, int cy, int cz, int radius) {
+        for (int x = cx - radius; x <= cx + radius; x++)
+            for (int z = cz - radius; z <= cz + radius; z++)
+                addTicket(type, x, cy, z);
+    }
+
+    public synchronized void removeArea(TicketType type, int cx, int cy, int cz, int radius) {
+        for (int x = cx - radius; x <= cx + radius; x++)
+            for (int z = cz - radius; z <= cz + radius; z++)
+                removeTicket(type, x, cy, z);
+    }
+
+    /** Moves an area ticket; new chunks are ticketed before old ones are released. */
+    public synchronized void moveArea(TicketType type, int oldX, int oldZ, int newX, int newZ, int cy, int radius) {
+        addArea(type, newX, cy, newZ, radius);
+        removeArea(type, oldX, cy, oldZ, radius);
+    }
+
+    public boolean hasTicket(long key) {
+        return tickets.containsKey(key);
+    }
+
+    public int getTicketedCount() {
+        return tickets.size();
+    }
+}
@@ -0,0 +1,39 @@
+package engine.server;
+
+import java.util.BitSet;
+
+import engine.common.world.Chunk;
+
+/**
+ * Cold-tier form of a clean chunk: the same compressed bytes {@link Chunk#serializeBlocks()}
+ * produces, so it can be sent to clients as-is and inflated only when touched again.
+ */
+public class CompressedChunk {
+    private final int x, y, z;
+    private final byte[] payload;
+    private final BitSet editMask; // Null if the chunk did not track edits
+
+    public CompressedChunk(int x, int y, int z, byte[] payload, BitSet editMask) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.payload = payload;
+        this.editMask = editMask;
+    }
+
+    public static CompressedChunk of(Chunk chunk) {
+        return new CompressedChunk(chunk.getX(), chunk.getY(), chunk.getZ(), chunk.serializeBlocks(), chunk.getEditMask());
+    }
+
+    public Chunk inflate() {
+        Chunk chunk = Chunk.fromNetwork(x, y, z, payload);
+        if (editMask != null) chunk.trackEdits(editMask);
+        chunk.markSaved(chunk.getVersion()); // Only clean chunks are demoted
+        return chunk;
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getZ() { return z; }
+    public byte[] getPayload() { return payload; }
+}
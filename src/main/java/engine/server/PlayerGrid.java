@@ -0,0 +1,233 @@
+package engine.server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.esotericsoftware.kryonet.Connection;
+
+import engine.common.network.packet.EntityMovePacket;
+import engine.common.network.packet.PlayerEnterViewPacket;
+import engine.common.network.packet.PlayerLeaveViewPacket;
+import engine.common.player.Player;
+import engine.common.util.Long2ObjectHashMap;
+import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
+
+/**
+ * Players bucketed by the chunk column they stand in, so each connection is only told
+ * about players within its view radius instead of about everyone.
+ *
+ * {@link #replicate} runs once per tick: for every connection it finds the players in
+ * the surrounding cells, announces the ones that came into range, sends the new
+ * position of those that moved since the last tick, and retracts the ones that left.
+ * A moved player's packet is built once and shared by all its viewers.
+ *
+ * Each player gets a small entity id at join. Moves from clients carry it, so they are
+ * matched to their player by array index, and only from the connection it was given
+ * to. Moves are relayed over UDP, enter and leave notices over TCP. A removed player's
+ * id is only handed out again after a short cooldown.
+ */
+public class PlayerGrid {
+    private final int viewRadius;
+
+    // Guarded by this
+    private final Long2ObjectHashMap<List<Entry>> cells = new Long2ObjectHashMap<>();
+    private final Map<Connection, Entry> entries = new HashMap<>();
+    // Indexed by entity id; 0 is never assigned. Ids of removed players are reused
+    private Entry[] byId = new Entry[64];
+    private int[] freeIds = new int[16];
+    private int freeCount, nextId = 1;
+    // Ids of removed players wait this many ticks before reuse, so moves for the old player still
+    // in flight over UDP cannot land on a newcomer before the leave notice has reached viewers
+    private static final int ID_REUSE_DELAY_TICKS = 30;
+    // Released ids in release order, packed as (tick they become free << 32 | id)
+    private final ArrayDeque<Long> coolingIds = new ArrayDeque<>();
+    private long tick;
+
+    private long enterPackets, leavePackets, movePackets;
+
+    private static final class Entry {
+        final String id;
+        final int entityId;
+        final Player player;
+        final Connection connection;
+        int cellX, cellZ;
+        // Last move applied from the client
+        int sequence;
+        boolean moved, removed;
+        // Packet for this tick's move, built by the first viewer that needs it
+        EntityMovePacket movePacket;
+        // Players this connection was told about and not told to forget yet
+        final Set<Entry> visible = new HashSet<>();
+
+        Entry(String id, int entityId, Player player, Connection connection) {
+            this.id = id;
+            this.entityId = entityId;
+            this.player = player;
+            this.connection = connection;
+        }
+    }
+
+    public PlayerGrid(int viewRadius) {
+        this.viewRadius = viewRadius;
+    }
+
+    /**
+     * Starts tracking {@code player}, known to clients as {@code id}; it is announced on
+     * the next replicate. Returns the entity id its moves must carry.
+     */
+    public synchronized int add(String id, Player player) {
+        Entry previous = entries.get(player.getConnection());
+        if (previous != null) remove(previous);
+        Entry entry = new Entry(id, allocateId(), player, player.getConnection());
+        entries.put(entry.connection, entry);
+        byId[entry.entityId] = entry;
+        entry.cellX = cell(player.getX());
+        entry.cellZ = cell(player.getZ());
+        cells.computeIfAbsent(ChunkPos.pack(entry.cellX, 0, entry.cellZ), k -> new ArrayList<>()).add(entry);
+        return entry.entityId;
+    }
+
+    private int allocateId() {
+        if (freeCount > 0) return freeIds[--freeCount];
+        int id = nextId++;
+        if (id == byId.length) byId = Arrays.copyOf(byId, id * 2);
+        return id;
+    }
+
+    /**
+     * Applies a move from {@code connection} to its player and re-files it. Returns the
+     * player, or null if the id is not this connection's or the packet is not newer
+     * than the last move applied.
+     */
+    public synchronized Player applyMove(Connection connection, EntityMovePacket move) {
+        int entityId = move.entityId;
+        if (entityId <= 0 || entityId >= byId.length) return null;
+        Entry entry = byId[entityId];
+        if (entry == null || entry.connection != connection || !EntityMovePacket.isNewer(move.sequence, entry.sequence)) return null;
+        entry.sequence = move.sequence;
+        Player player = entry.player;
+        player.setPosition(move.getX(), move.getY(), move.getZ());
+        player.setYaw(move.getYaw());
+        player.setPitch(move.getPitch());
+        entry.moved = true;
+        int cellX = cell(player.getX()), cellZ = cell(player.getZ());
+        if (cellX != entry.cellX || cellZ != entry.cellZ) {
+            removeFromCell(entry);
+            entry.cellX = cellX;
+            entry.cellZ = cellZ;
+            cells.computeIfAbsent(ChunkPos.pack(cellX, 0, cellZ), k -> new ArrayList<>()).add(entry);
+        }
+        return player;
+    }
+
+    /** Stops tracking the connection's player; its viewers are told on the next replicate. Returns its id, or null. */
+    public synchronized String remove(Connection connection) {
+        Entry entry = entries.get(connection);
+        if (entry == null) return null;
+        remove(entry);
+        return entry.id;
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.connection);
+        removeFromCell(entry);
+        entry.removed = true;
+        entry.visible.clear();
+        byId[entry.entityId] = null;
+        coolingIds.add((tick + ID_REUSE_DELAY_TICKS) << 32 | entry.entityId);
+    }
+
+    private void releaseCooledIds() {
+        while (!coolingIds.isEmpty() && coolingIds.peek() >>> 32 <= tick) {
+            int id = (int) (long) coolingIds.poll();
+            if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            freeIds[freeCount++] = id;
+        }
+    }
+
+    private void removeFromCell(Entry entry) {
+        long key = ChunkPos.pack(entry.cellX, 0, entry.cellZ);
+        List<Entry> cell = cells.get(key);
+        if (cell == null) return;
+        cell.remove(entry);
+        if (cell.isEmpty()) cells.remove(key);
+    }
+
+    /** Sends every connection the enter, move and leave updates for players around it. Called once per tick. */
+    public synchronized void replicate() {
+        tick++;
+        releaseCooledIds();
+        for (Entry viewer : entries.values()) {
+            for (Iterator<Entry> it = viewer.visible.iterator(); it.hasNext();) {
+                Entry target = it.next();
+                if (!target.removed && inRange(viewer, target)) continue;
+                it.remove();
+                PlayerLeaveViewPacket leave = new PlayerLeaveViewPacket();
+                leave.entityId = target.entityId;
+                viewer.connection.sendTCP(leave);
+                leavePackets++;
+            }
+            for (int x = viewer.cellX - viewRadius; x <= viewer.cellX + viewRadius; x++) {
+                for (int z = viewer.cellZ - viewRadius; z <= viewer.cellZ + viewRadius; z++) {
+                    List<Entry> cell = cells.get(ChunkPos.pack(x, 0, z));
+                    if (cell == null) continue;
+                    for (Entry target : cell) {
+                        if (target == viewer) continue;
+                        if (viewer.visible.add(target)) {
+                            viewer.connection.sendTCP(enterPacket(target));
+                            enterPackets++;
+                        } else if (target.moved) {
+                            viewer.connection.sendUDP(movePacket(target));
+                            movePackets++;
+                        }
+                    }
+                }
+            }
+        }
+        for (Entry entry : entries.values()) {
+            entry.moved = false;
+            entry.movePacket = null;
+        }
+    }
+
+    private boolean inRange(Entry viewer, Entry target) {
+        return Math.abs(target.cellX - viewer.cellX) <= viewRadius && Math.abs(target.cellZ - viewer.cellZ) <= viewRadius;
+    }
+
+    private static PlayerEnterViewPacket enterPacket(Entry target) {
+        Player p = target.player;
+        PlayerEnterViewPacket packet = new PlayerEnterViewPacket();
+        packet.entityId = target.entityId;
+        packet.playerId = target.id;
+        packet.sequence = target.sequence;
+        packet.x = p.getX();
+        packet.y = p.getY();
+        packet.z = p.getZ();
+        packet.yaw = p.getYaw();
+        packet.pitch = p.getPitch();
+        return packet;
+    }
+
+    private static EntityMovePacket movePacket(Entry target) {
+        if (target.movePacket != null) return target.movePacket;
+        Player p = target.player;
+        return target.movePacket = new EntityMovePacket(target.entityId, target.sequence, p.getX(), p.getY(), p.getZ(), p.getYaw(), p.getPitch());
+    }
+
+    private static int cell(float coordinate) {
+        return (int) Math.floor(coordinate / Chunk.SIZE);
+    }
+
+    public synchronized int getPlayerCount() { return entries.size(); }
+    public synchronized long getEnterPackets() { return enterPackets; }
+    public synchronized long getLeavePackets() { return leavePackets; }
+    public synchronized long getMovePackets() { return movePackets; }
+}
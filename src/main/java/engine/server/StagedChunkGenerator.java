@@ -0,0 +1,19 @@
+package engine.server;
+
+import engine.common.world.Chunk;
+import engine.common.world.ChunkStatus;
+
+/**
+ * A generator split into {@link ChunkStatus} stages, run in order on one chunk.
+ */
+public interface StagedChunkGenerator extends ChunkGenerator {
+    /** Runs one stage on {@code chunk}. Never called for EMPTY. */
+    void generateStage(ChunkStatus stage, Chunk chunk);
+
+    @Override
+    default void generate(Chunk chunk) {
+        for (ChunkStatus stage : ChunkStatus.values()) {
+            if (stage != ChunkStatus.EMPTY) generateStage(stage, chunk);
+        }
+    }
+}
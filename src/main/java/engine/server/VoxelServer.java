@@ -3,16 +3,19 @@ package engine.server;
 import com.esotericsoftware.kryonet.*;
 
 import engine.common.block.Block;
-import engine.common.block.BlockRegistry;
 import engine.common.network.NetworkManager;
 import engine.common.network.packet.BlockUpdatePacket;
-import engine.common.network.packet.ChunkDataPacket;
+import engine.common.network.packet.EntityMovePacket;
 import engine.common.network.packet.PlayerChatPacket;
+import engine.common.network.packet.PlayerJoinAckPacket;
 import engine.common.network.packet.PlayerJoinPacket;
-import engine.common.network.packet.PlayerMovePacket;
 import engine.common.player.Player;
 import engine.common.world.Chunk;
 import engine.common.world.DefaultChunkGenerator;
+import engine.common.world.DensityChunkGenerator;
+import engine.common.world.FlatChunkGenerator;
+import engine.common.world.VoidChunkGenerator;
+import engine.common.world.NoiseChunkGenerator;
 import server.event.EventManager;
 import server.event.player.PlayerChatEvent;
 import server.event.player.PlayerJoinEvent;
@@ -24,16 +27,37 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class VoxelServer {
  private NetworkManager network = new NetworkManager();
- private World world = new World(new File("serverworld"));
- private BlockRegistry blockRegistry = BlockRegistry.createDefault();
- private ChunkGenerator chunkGenerator = new DefaultChunkGenerator(1, 128);
+ private ChunkGenerator chunkGenerator = createGenerator();
+ private World world = new World(new File("serverworld"), chunkGenerator);
  private Map<String, Player> players = new ConcurrentHashMap<>();
  private server.Server serverInstance;
 
- // Track which chunks have been sent to which connection
- private Map<Connection, Set<String>> sentChunks = new ConcurrentHashMap<>();
+ // Chunks queued for and already sent to each connection
+ private Map<Connection, ChunkSendQueue> sendQueues = new ConcurrentHashMap<>();
+ // Chunk each connection's view tickets are currently centered on
+ private Map<Connection, int[]> viewCenters = new ConcurrentHashMap<>();
+ // Clients keep chunks within max(their render distance, voxel.viewDistance) + 1, so both sides should agree on it
+ private static final int VIEW_RADIUS = Integer.getInteger("voxel.viewDistance", 2);
+ // Per-connection chunk streaming budget, spent nearest chunk first each tick
+ private static final int SEND_MAX_CHUNKS_PER_TICK = Integer.getInteger("voxel.sendChunksPerTick", 8);
+ private static final int SEND_MAX_BYTES_PER_TICK = Integer.getInteger("voxel.sendBytesPerTick", 64 * 1024);
+ // Sending pauses while more than this is waiting in the connection's TCP write buffer
+ private static final int SEND_MAX_BUFFERED = Integer.getInteger("voxel.sendMaxBufferedBytes", NetworkManager.WRITE_BUFFER_SIZE / 2);
+ // A section with more changed blocks than this in one tick is resent whole instead of as a change list
+ private static final int SECTION_RESEND_THRESHOLD = Integer.getInteger("voxel.sectionResendThreshold", 256);
+ private final BlockChangeBroadcaster blockChanges = new BlockChangeBroadcaster(SECTION_RESEND_THRESHOLD);
+ // Players are replicated only to connections within the chunk view radius of them
+ private final PlayerGrid playerGrid = new PlayerGrid(VIEW_RADIUS);
+ private static final int SPAWN_RADIUS = 2;
+ private static final int GEN_MAX_IN_FLIGHT = Integer.getInteger("voxel.genMaxInFlight", Runtime.getRuntime().availableProcessors() * 2);
+ private static final int GEN_MAX_QUEUED = Integer.getInteger("voxel.genMaxQueued", 1024);
+ // Requests past the view edge (plus the client's keep margin) are cancelled
+ private final ChunkGenerationScheduler generationScheduler = new ChunkGenerationScheduler(
+     world, chunkGenerator, this::distanceToNearestView, GEN_MAX_IN_FLIGHT, GEN_MAX_QUEUED, VIEW_RADIUS + 1);
+ private volatile boolean viewsMoved;
  
  private static final int TICKS_PER_SECOND = 30;
+ private static final long SAVE_INTERVAL_MS = Long.getLong("voxel.saveIntervalMs", 5000);
  private static final long TICK_INTERVAL_MS = 1000 / TICKS_PER_SECOND;
  private volatile int tickCount = 0;
  private volatile double tps = TICKS_PER_SECOND;
@@ -49,8 +73,22 @@ public class VoxelServer {
      new VoxelServer().start();
  }
 
+ // Stored chunks are deltas against the generator, so switching it on an existing world changes unedited terrain
+ static ChunkGenerator createGenerator() {
+     switch (System.getProperty("voxel.generator", "default")) {
+         case "noise": return new NoiseChunkGenerator(Long.getLong("voxel.seed", 0L));
+         case "density": return new DensityChunkGenerator(Long.getLong("voxel.seed", 0L));
+         case "flat": return new FlatChunkGenerator();
+         case "void": return new VoidChunkGenerator();
+         default: return new DefaultChunkGenerator(1, 128);
+     }
+ }
+
  private void start() throws Exception {
      registerPacketHandlers();
+     world.startPersistence(SAVE_INTERVAL_MS);
+     world.getTicketManager().addArea(ChunkTicketManager.TicketType.SPAWN, 0, 0, 0, SPAWN_RADIUS);
+     Runtime.getRuntime().addShutdownHook(new Thread(world::close, "World-Shutdown"));
 
      network.startServer(54555, 54777);
      Server server = network.getServer();
@@ -65,8 +103,14 @@ public class VoxelServer {
 
          @Override
          public void disconnected(Connection connection) {
-             // Cleanup sentChunks for this connection
-             sentChunks.remove(connection);
+             // Cleanup queued chunks, view tickets and the player for this connection
+             sendQueues.remove(connection);
+             String playerId = playerGrid.remove(connection);
+             if (playerId != null) players.remove(playerId);
+             int[] center = viewCenters.remove(connection);
+             if (center != null) {
+                 world.getTicketManager().removeArea(ChunkTicketManager.TicketType.PLAYER, center[0], 0, center[1], VIEW_RADIUS);
+             }
          }
      });
      
@@ -109,24 +153,49 @@ public class VoxelServer {
      // Example: world/game logic, entity updates, etc.
      // For now, just increment tick count for TPS calculation
      tickCount++;     
+     world.tick();
+     if (viewsMoved) {
+         viewsMoved = false;
+         generationScheduler.reprioritize();
+     }
+     // Before draining, so a chunk sent this tick is never followed by changes it already contains
+     blockChanges.flush(sendQueues.values());
+     for (ChunkSendQueue queue : sendQueues.values()) {
+         queue.drain(SEND_MAX_CHUNKS_PER_TICK, SEND_MAX_BYTES_PER_TICK, SEND_MAX_BUFFERED);
+     }
+     playerGrid.replicate();
+ }
+
+ // Chebyshev distance in chunks to the closest player view center
+ private double distanceToNearestView(int cx, int cy, int cz) {
+     double best = Double.POSITIVE_INFINITY;
+     for (int[] center : viewCenters.values()) {
+         best = Math.min(best, Math.max(Math.abs(cx - center[0]), Math.abs(cz - center[1])));
+     }
+     return best;
  }
 
- private void sendChunkIfNotSent(Connection connection, int cx, int cy, int cz) {
-     String chunkKey = cx + "," + cy + "," + cz;
-     Set<String> sent = sentChunks.computeIfAbsent(connection, k -> ConcurrentHashMap.newKeySet());
-     if (!sent.contains(chunkKey)) {
-         Chunk chunk = world.getOrCreateChunk(cx, cy, cz, chunkGenerator, blockRegistry);
-         ChunkDataPacket chunkPacket = new ChunkDataPacket(
-             cx, cy, cz,
-             chunk.serializeBlocks()
-         );
-         connection.sendTCP(chunkPacket);
-         sent.add(chunkKey);
+ // Re-centers the player's view tickets and queues any chunks that came into range
+ private void updateView(Connection connection, Player player) {
+     int playerChunkX = (int) Math.floor(player.getX() / Chunk.SIZE);
+     int playerChunkZ = (int) Math.floor(player.getZ() / Chunk.SIZE);
+     int[] center = viewCenters.get(connection);
+     ChunkTicketManager tickets = world.getTicketManager();
+     if (center == null) {
+         tickets.addArea(ChunkTicketManager.TicketType.PLAYER, playerChunkX, 0, playerChunkZ, VIEW_RADIUS);
+         viewCenters.put(connection, new int[] { playerChunkX, playerChunkZ });
+     } else if (center[0] != playerChunkX || center[1] != playerChunkZ) {
+         tickets.moveArea(ChunkTicketManager.TicketType.PLAYER, center[0], center[1], playerChunkX, playerChunkZ, 0, VIEW_RADIUS);
+         center[0] = playerChunkX;
+         center[1] = playerChunkZ;
      } else {
-         // Optional: System.out.println("Server: Skipped sending duplicate chunk " + chunkKey);
+         return; // Same chunk as last time, nothing new to send
      }
+     viewsMoved = true;
+     sendQueues.computeIfAbsent(connection, c -> new ChunkSendQueue(c, world, generationScheduler, VIEW_RADIUS))
+         .setCenter(playerChunkX, playerChunkZ);
  }
- 
+
  private void RegisterServerEvents() {
  	EventManager eventManager = serverInstance.getEventManager();
  	
@@ -150,41 +219,33 @@ public class VoxelServer {
          Player player = new Player(UUID.randomUUID(), "Player", connection);
          player.setPosition(pj.x, pj.y, pj.z);
          players.put(pj.playerId, player);
+         PlayerJoinAckPacket ack = new PlayerJoinAckPacket();
+         ack.entityId = playerGrid.add(pj.playerId, player);
+         ack.viewRadius = VIEW_RADIUS;
+         connection.sendTCP(ack);
          serverInstance.getEventManager().fireEvent(new PlayerJoinEvent(player));
 
-         int playerChunkX = (int) Math.floor(player.getX() / Chunk.SIZE);
-         int playerChunkZ = (int) Math.floor(player.getZ() / Chunk.SIZE);
-         for (int cx = playerChunkX - 2; cx <= playerChunkX + 2; cx++) {
-             for (int cz = playerChunkZ - 2; cz <= playerChunkZ + 2; cz++) {
-                 sendChunkIfNotSent(connection, cx, 0, cz);
-             }
-         }
+         updateView(connection, player);
      });
 
-     packetHandlers.put(PlayerMovePacket.class, (PacketHandler<PlayerMovePacket>) (connection, pm) -> {
-         Player p = players.get(pm.playerId);
+     // Arrives over UDP; stale, reordered or spoofed moves come back null
+     packetHandlers.put(EntityMovePacket.class, (PacketHandler<EntityMovePacket>) (connection, em) -> {
+         Player p = playerGrid.applyMove(connection, em);
          if (p != null) {
-             p.setPosition(pm.x, pm.y, pm.z);
-             p.setYaw(pm.yaw);
-             p.setPitch(pm.pitch);
-
-             // Optionally, generate/send chunks if player moves near edge
-             int playerChunkX = (int) Math.floor(p.getX() / Chunk.SIZE);
-             int playerChunkZ = (int) Math.floor(p.getZ() / Chunk.SIZE);
-             for (int cx = playerChunkX - 2; cx <= playerChunkX + 2; cx++) {
-                 for (int cz = playerChunkZ - 2; cz <= playerChunkZ + 2; cz++) {
-                     sendChunkIfNotSent(connection, cx, 0, cz);
-                 }
-             }
+             // Generate/send chunks if player moved into a new chunk
+             updateView(connection, p);
          }
      });
 
      packetHandlers.put(BlockUpdatePacket.class, (PacketHandler<BlockUpdatePacket>) (connection, bu) -> {
-         Chunk chunk = world.getOrCreateChunk(bu.chunkX, bu.chunkY, bu.chunkZ, chunkGenerator, blockRegistry);
-         if (chunk != null) {
-             chunk.setBlock(bu.x, bu.y, bu.z, new Block(bu.blockType));
-             // Optionally, send update to all clients who have this chunk
-             // (not implemented here)
+         // Never loads or generates on the network thread: a player can only edit chunks it
+         // was sent, which its tickets keep in memory, so anything else is dropped
+         Chunk chunk = world.getLoadedChunk(bu.chunkX, bu.chunkY, bu.chunkZ);
+         // The instance that took the edit, which may have replaced the one looked up
+         Chunk edited = chunk == null ? null : world.setBlock(chunk, bu.x, bu.y, bu.z, Block.of(bu.blockType));
+         if (edited != null) {
+             // Batched per section and sent to everyone who has the chunk at the end of the tick
+             blockChanges.record(edited, bu.x, bu.y, bu.z);
          }
      });
 
@@ -194,4 +255,8 @@ public class VoxelServer {
  public double getTPS() {
      return tps;
  }
+
+ public World getWorld() {
+     return world;
+ }
 }
\ No newline at end of file
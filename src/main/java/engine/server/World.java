@@ -3,26 +3,383 @@ package engine.server;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import engine.common.util.Long2ObjectHashMap;
+import engine.common.util.LongHashSet;
 import engine.common.world.AsyncChunkGenerator;
 import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
+import engine.common.block.Block;
 import engine.common.block.BlockRegistry;
+import engine.common.block.Material;
+import engine.server.storage.LegacyChunkConverter;
+import engine.server.storage.RegionStorage;
 
 public class World {
-    public final Map<String, Chunk> chunks = new ConcurrentHashMap<>();
+    private static final int SAVE_BATCH_SIZE = 64;
+    private static final int LOADER_THREADS = 2;
+    private static final int UNLOAD_CHECK_INTERVAL_TICKS = 20;
+    private static final long UNLOAD_GRACE_TICKS = Long.getLong("voxel.unloadGraceTicks", 30 * 30);
+    private static final long COLD_AFTER_TICKS = Long.getLong("voxel.coldAfterTicks", 30 * 20);
+    // Bounds the compression work done on the tick thread per check
+    private static final int MAX_DEMOTIONS_PER_CHECK = 32;
+    public final Long2ObjectHashMap<Chunk> chunks = new Long2ObjectHashMap<>(1024);
+    // Clean chunks nobody looked at for COLD_AFTER_TICKS, kept in their compressed wire form
+    private final Long2ObjectHashMap<CompressedChunk> coldChunks = new Long2ObjectHashMap<>(1024);
+    // Dirty chunks dropped from memory whose write is still queued; lookups take them back until it lands
+    private final Long2ObjectHashMap<Chunk> pendingWrites = new Long2ObjectHashMap<>();
+    private final ChunkCacheStats cacheStats = new ChunkCacheStats();
     private final File worldDir;
+    private final RegionStorage storage;
+    private final Logger logger = new Logger("World");
+    private final ChunkGenerator generator;
+    private final ChunkRecordCodec codec;
+    private final BlockJournal journal;
+    private final ChunkPersistenceService persistence;
     private final AsyncChunkGenerator asyncChunkGenerator = new AsyncChunkGenerator();
+    // Disk reads run here, off the network and tick threads
+    private final ExecutorService loadExecutor = Executors.newFixedThreadPool(LOADER_THREADS, r -> {
+        Thread t = new Thread(r, "Chunk-Loader");
+        t.setDaemon(true);
+        return t;
+    });
+    // One in-flight load per coordinate; concurrent requests share the same future
+    private final Long2ObjectHashMap<CompletableFuture<Chunk>> pendingLoads = new Long2ObjectHashMap<>();
+    private final Long2ObjectHashMap<CompletableFuture<Chunk>> pendingGenerations = new Long2ObjectHashMap<>();
+    private final ChunkLoadMetrics loadMetrics = new ChunkLoadMetrics();
+    private final ChunkTicketManager ticketManager = new ChunkTicketManager();
+    // Tick at which each unticketed loaded chunk was first seen idle
+    private final Long2ObjectHashMap<long[]> idleSince = new Long2ObjectHashMap<>();
+    private volatile long tickCount;
+    // Edits hold the read lock; taking a snapshot holds the write lock for the brief freeze
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final List<WorldSnapshot> activeSnapshots = new CopyOnWriteArrayList<>();
+    private final ExecutorService backupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "World-Backup");
+        t.setDaemon(true);
+        return t;
+    });
     public World(File worldDir) {
+        this(worldDir, null);
+    }
+    /**
+     * With a generator, chunks it produced are stored as a marker plus their edits and
+     * regenerated on load; without one every chunk is stored in full.
+     */
+    public World(File worldDir, ChunkGenerator generator) {
         this.worldDir = worldDir;
         if(!worldDir.exists()) worldDir.mkdirs();
+        this.storage = new RegionStorage(worldDir);
+        this.generator = generator;
+        this.codec = new ChunkRecordCodec(generator);
+        if (LegacyChunkConverter.hasLegacyChunks(worldDir)) {
+            try {
+                LegacyChunkConverter.convert(worldDir, storage);
+            } catch (IOException e) {
+                logger.error("Failed to convert legacy chunks in " + worldDir + ": " + e);
+            }
+        }
+        try {
+            codec.bind(worldDir);
+        } catch (IOException e) {
+            // Opening anyway would regenerate unedited chunks as different terrain
+            throw new UncheckedIOException("Cannot open world " + worldDir + " with this generator", e);
+        }
+        try {
+            storage.buildIndex();
+        } catch (IOException e) {
+            // Without the index stored chunks look absent and would be regenerated over
+            throw new UncheckedIOException("Cannot index region files in " + worldDir, e);
+        }
+        // Opened last so a world that fails the checks above leaves no journal writer behind
+        try {
+            this.journal = new BlockJournal(new File(worldDir, "journal"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open block journal in " + worldDir, e);
+        }
+        this.persistence = new ChunkPersistenceService(this, storage, codec, journal, SAVE_BATCH_SIZE);
+        replayJournal();
+    }
+    // Re-applies edits that were journaled but not yet in the region files, then checkpoints
+    private void replayJournal() {
+        try {
+            long replayed = journal.replay((chunkX, chunkY, chunkZ, index, materialId) -> {
+                Chunk chunk = getChunk(chunkX, chunkY, chunkZ);
+                if (chunk == null) {
+                    chunk = Chunk.createGenerated(chunkX, chunkY, chunkZ);
+                    if (generator != null) {
+                        generator.populate(chunk);
+                        chunk.trackEdits(null);
+                    }
+                    chunk = putIfAbsent(chunk);
+                }
+                chunk.setBlock(index & 15, index >> 8, (index >> 4) & 15, Block.of(Material.fromId(materialId)));
+            });
+            if (replayed > 0) logger.info("Replayed " + replayed + " journaled block changes");
+        } catch (IOException e) {
+            logger.error("Failed to replay block journal: " + e);
+            return;
+        }
+        persistence.flush();
     }
-    private String key(int x,int y,int z){ return x + "," + y + "," + z; }
+    private long key(int x,int y,int z){ return ChunkPos.pack(x, y, z); }
+    /** Returns the loaded chunk, reading it from disk first if it was saved earlier; blocks until the read is done. */
     public Chunk getChunk(int x, int y, int z) {
-        return chunks.get(key(x, y, z));
+        Chunk chunk = getLoadedChunk(x, y, z);
+        if (chunk != null) return chunk;
+        cacheStats.recordMiss();
+        if (!storage.isStored(x, y, z)) return null;
+        return loadChunkAsync(x, y, z).join();
+    }
+    /** Returns the chunk only if it is already in memory, inflating it from the cold tier if needed; never touches disk. */
+    public Chunk getLoadedChunk(int x, int y, int z) {
+        long key = key(x, y, z);
+        Chunk chunk = chunks.get(key);
+        if (chunk != null) {
+            cacheStats.recordHotHit();
+            chunk.touch(tickCount);
+            return chunk;
+        }
+        Chunk unloading = pendingWrites.get(key);
+        if (unloading != null) {
+            // The disk record is older than this; stays in pendingWrites until its write lands
+            cacheStats.recordHotHit();
+            return putIfAbsent(unloading);
+        }
+        CompressedChunk cold = coldChunks.get(key);
+        if (cold == null) return null;
+        cacheStats.recordColdHit();
+        // Published before the cold copy is dropped so a concurrent lookup always finds one of them
+        chunk = putIfAbsent(cold.inflate());
+        coldChunks.remove(key, cold);
+        return chunk;
+    }
+    /**
+     * Returns the compressed wire payload of an in-memory chunk, or null if it is in neither tier.
+     * Cold chunks are served as-is without being inflated or counted as accessed.
+     */
+    public byte[] getChunkPayload(int x, int y, int z) {
+        long key = key(x, y, z);
+        Chunk chunk = chunks.get(key);
+        if (chunk != null) {
+            cacheStats.recordHotHit();
+            chunk.touch(tickCount);
+            return getChunkPayload(chunk);
+        }
+        if (pendingWrites.containsKey(key)) {
+            chunk = getLoadedChunk(x, y, z);
+            if (chunk != null) return getChunkPayload(chunk);
+        }
+        CompressedChunk cold = coldChunks.get(key);
+        if (cold == null) return null;
+        cacheStats.recordColdPayloadServe();
+        return cold.getPayload();
+    }
+    /** Compressed wire payload of a chunk, shared across connections until the chunk changes. */
+    public byte[] getChunkPayload(Chunk chunk) {
+        byte[] payload = chunk.getCachedPayload();
+        if (payload != null) {
+            cacheStats.recordPayloadHit();
+            return payload;
+        }
+        long start = System.nanoTime();
+        payload = chunk.serializeBlocks();
+        cacheStats.recordPayloadBuild(System.nanoTime() - start);
+        return payload;
+    }
+    public boolean isStored(int x, int y, int z) {
+        return storage.isStored(x, y, z);
+    }
+    /**
+     * Loads a stored chunk on the loader pool. Concurrent requests for the same chunk
+     * share one read. Completes with null if the chunk is not on disk.
+     */
+    public CompletableFuture<Chunk> loadChunkAsync(int x, int y, int z) {
+        long key = key(x, y, z);
+        Chunk loaded = getLoadedChunk(x, y, z);
+        if (loaded != null) return CompletableFuture.completedFuture(loaded);
+        CompletableFuture<Chunk> created = new CompletableFuture<>();
+        CompletableFuture<Chunk> future = pendingLoads.computeIfAbsent(key, k -> created);
+        if (future != created) {
+            loadMetrics.recordDeduplicated();
+            return future;
+        }
+        loadExecutor.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                byte[] payload = storage.readPayload(x, y, z);
+                Chunk chunk = payload == null ? null : codec.decode(x, y, z, payload);
+                if (chunk != null) {
+                    loadMetrics.recordLoad(System.nanoTime() - start);
+                    chunk = putIfAbsent(chunk);
+                }
+                created.complete(chunk);
+            } catch (Exception e) {
+                loadMetrics.recordFailure();
+                created.completeExceptionally(e);
+            } finally {
+                pendingLoads.remove(key, created);
+            }
+        });
+        return created;
+    }
+    /**
+     * Changes a block and journals it, so the edit survives a crash before the chunk's
+     * next save. Returns the chunk instance that took the edit, or null if the block did
+     * not change.
+     *
+     * {@code chunk} may have been unloaded or demoted since the caller looked it up; the
+     * edit then goes to the instance that replaced it, so it is never made to a copy no
+     * save will find.
+     */
+    public Chunk setBlock(Chunk chunk, int x, int y, int z, Block block) {
+        if (x < 0 || x >= Chunk.SIZE || y < 0 || y >= Chunk.HEIGHT || z < 0 || z >= Chunk.SIZE) return null;
+        long key = key(chunk.getX(), chunk.getY(), chunk.getZ());
+        snapshotLock.readLock().lock();
+        try {
+            while (true) {
+                // Under the chunk lock so journal order matches the order edits were applied,
+                // and so unload and demote cannot retire the chunk between the check and the edit
+                synchronized (chunk) {
+                    if (isResident(key, chunk)) {
+                        if (!chunk.setBlock(x, y, z, block)) return null;
+                        Material type = block == null ? Material.AIR : block.getType();
+                        journal.append(chunk.getX(), chunk.getY(), chunk.getZ(), Chunk.blockIndex(x, y, z), type.getId());
+                        return chunk;
+                    }
+                }
+                Chunk current = getLoadedChunk(chunk.getX(), chunk.getY(), chunk.getZ());
+                // Unloaded while clean: it still matches what is stored, so it can be put back as is
+                chunk = current != null ? current : putIfAbsent(chunk);
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+    // The instance lookups return, or a dirty one still waiting for its write
+    private boolean isResident(long key, Chunk chunk) {
+        return chunks.get(key) == chunk || pendingWrites.get(key) == chunk;
+    }
+    /**
+     * Freezes a consistent view of every chunk: loaded chunks copy-on-write, cold chunks
+     * by reference, and stored chunks by their region records. Edits through
+     * {@link #setBlock} wait only while the loaded chunks are being marked shared.
+     * Call {@link #release} once the snapshot is no longer needed.
+     */
+    public WorldSnapshot snapshot() {
+        List<Chunk> copies = new ArrayList<>();
+        List<CompressedChunk> cold = new ArrayList<>();
+        LongHashSet resident = new LongHashSet();
+        LongHashSet stored = new LongHashSet();
+        WorldSnapshot snapshot;
+        long start = System.nanoTime();
+        snapshotLock.writeLock().lock();
+        try {
+            // A chunk moving between tiers is always in one of these three reads
+            List<CompressedChunk> coldBefore = coldChunks.values();
+            for (Chunk chunk : chunks.values()) {
+                if (resident.add(ChunkPos.of(chunk))) copies.add(chunk.snapshot());
+            }
+            // Unloaded but not written yet, so newer than their stored records
+            for (Chunk chunk : pendingWrites.values()) {
+                if (resident.add(ChunkPos.of(chunk))) copies.add(chunk.snapshot());
+            }
+            for (List<CompressedChunk> list : Arrays.asList(coldBefore, coldChunks.values())) {
+                for (CompressedChunk c : list) {
+                    if (resident.add(key(c.getX(), c.getY(), c.getZ()))) cold.add(c);
+                }
+            }
+            for (long key : storage.getStoredKeys()) {
+                if (!resident.contains(key)) stored.add(key);
+            }
+            snapshot = new WorldSnapshot(this, storage, codec, copies, cold, stored, System.nanoTime() - start);
+            activeSnapshots.add(snapshot);
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        return snapshot;
+    }
+    public void release(WorldSnapshot snapshot) {
+        activeSnapshots.remove(snapshot);
+    }
+    /** Snapshots the world and writes it to {@code dir} on a background thread. */
+    public CompletableFuture<WorldSnapshot> backup(File dir) {
+        WorldSnapshot snapshot = snapshot();
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                snapshot.writeTo(dir);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                logger.info("Backup to " + dir + ": " + snapshot.getLoadedChunkCount() + " loaded, "
+                    + snapshot.getColdChunkCount() + " cold, " + snapshot.getStoredChunkCount() + " stored chunks; frozen "
+                    + snapshot.getCreationNanos() / 1000 + " us, written in " + (System.nanoTime() - start) / 1_000_000
+                    + " ms, extra memory ~" + snapshot.estimateExtraMemory() / 1024 + " KB");
+                release(snapshot);
+            }
+            return snapshot;
+        }, backupExecutor);
+    }
+    // Lets active snapshots copy a stored record before it is replaced
+    void beforeChunkWrite(int x, int y, int z) throws IOException {
+        if (activeSnapshots.isEmpty()) return;
+        long key = key(x, y, z);
+        for (WorldSnapshot snapshot : activeSnapshots) snapshot.preserve(key);
+    }
+    // Called by the persistence service after each successful write
+    void afterChunkWrite(Chunk chunk) {
+        // Only once clean: an edit made after the write was captured needs another write.
+        // Locked so an edit cannot land between the check and the removal
+        synchronized (chunk) {
+            if (!chunk.isDirty()) pendingWrites.remove(key(chunk.getX(), chunk.getY(), chunk.getZ()), chunk);
+        }
+    }
+    /** Dirty chunks that were unloaded and still wait for their write. */
+    Collection<Chunk> getPendingWrites() {
+        return pendingWrites.values();
+    }
+    CompressedChunk getColdChunk(long key) {
+        return coldChunks.get(key);
+    }
+    public BlockJournal getJournal() {
+        return journal;
+    }
+    public ChunkLoadMetrics getLoadMetrics() {
+        return loadMetrics;
     }
-    public String getChunkKey(int x, int y, int z) {
+    public ChunkCacheStats getCacheStats() {
+        return cacheStats;
+    }
+    public int getHotChunkCount() {
+        return chunks.size();
+    }
+    public int getColdChunkCount() {
+        return coldChunks.size();
+    }
+    public int getStoredChunkCount() {
+        return storage.getStoredCount();
+    }
+    /** Estimated heap held by inflated chunks; walks the hot tier, so not for per-tick use. */
+    public long getHotMemoryUsage() {
+        long bytes = 0;
+        for (Chunk chunk : chunks.values()) bytes += chunk.estimateMemoryUsage();
+        return bytes;
+    }
+    /** Estimated heap held by compressed chunks. */
+    public long getColdMemoryUsage() {
+        long bytes = 0;
+        for (CompressedChunk cold : coldChunks.values()) bytes += 48 + 16 + cold.getPayload().length;
+        return bytes;
+    }
+    public long getChunkKey(int x, int y, int z) {
         return key(x, y, z);
     }
     public Collection<Chunk> getChunks() {
@@ -31,54 +388,185 @@ public class World {
     public void setChunk(Chunk chunk) {
         chunks.put(key(chunk.getX(), chunk.getY(), chunk.getZ()), chunk);
     }
+    // Keeps whichever instance got there first so two racing loads/generations agree
+    private Chunk putIfAbsent(Chunk chunk) {
+        chunk.touch(tickCount);
+        Chunk existing = chunks.putIfAbsent(key(chunk.getX(), chunk.getY(), chunk.getZ()), chunk);
+        return existing != null ? existing : chunk;
+    }
+    /** Starts flushing dirty chunks in the background every {@code intervalMs}. */
+    public void startPersistence(long intervalMs) {
+        persistence.start(intervalMs);
+    }
+    /** Writes only the chunks that changed since they were last saved. */
     public void saveAll() {
-        for(Chunk chunk : chunks.values()) {
-            saveChunk(chunk);
-        }
+        persistence.flush();
     }
     public void saveChunk(Chunk chunk) {
-        File f = new File(worldDir, "chunk_" + chunk.getX() + "_" + chunk.getY() + "_" + chunk.getZ() + ".bin");
-        try {
-            chunk.save(f);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        persistence.save(chunk);
     }
     public void loadAll() throws IOException {
-        File[] files = worldDir.listFiles((dir, name) -> name.startsWith("chunk_") && name.endsWith(".bin"));
-        if(files == null) return;
-        for(File f : files) {
-            Chunk chunk = Chunk.load(f);
-            setChunk(chunk);
+        for (long key : storage.listChunks()) {
+            int x = ChunkPos.getX(key), y = ChunkPos.getY(key), z = ChunkPos.getZ(key);
+            byte[] payload = storage.readPayload(x, y, z);
+            if (payload != null) setChunk(codec.decode(x, y, z, payload));
         }
     }
     // Pass chunkGenerator and blockRegistry as parameters!
     public Chunk getOrCreateChunk(int x, int y, int z, ChunkGenerator chunkGenerator, BlockRegistry blockRegistry) {
-        Chunk chunk = getChunk(x, y, z);
+        Chunk chunk = getChunk(x, y, z); // Checks disk before generating
         if (chunk == null) {
             chunk = Chunk.createGenerated(x, y, z); // Generate chunk (server only)
-            chunkGenerator.generate(chunk);
-            setChunk(chunk);
-            saveChunk(chunk);
+            chunkGenerator.populate(chunk);
+            if (codec.isBaseline(chunkGenerator)) chunk.trackEdits(null);
+            chunk = putIfAbsent(chunk); // Dirty from generation; persisted by the background flush
         }
         return chunk;
     }
     
     public CompletableFuture<Chunk> getOrCreateChunkAsync(int x, int y, int z, ChunkGenerator chunkGenerator, BlockRegistry blockRegistry) {
-        Chunk chunk = getChunk(x, y, z);
+        Chunk chunk = getLoadedChunk(x, y, z);
         if (chunk != null) {
             return CompletableFuture.completedFuture(chunk);
+        } else if (storage.isStored(x, y, z)) {
+            return loadChunkAsync(x, y, z);
+        }
+        // One generation per coordinate; concurrent callers share it
+        long key = key(x, y, z);
+        CompletableFuture<Chunk> created = new CompletableFuture<>();
+        CompletableFuture<Chunk> pending = pendingGenerations.putIfAbsent(key, created);
+        if (pending != null) return pending;
+        boolean trackEdits = codec.isBaseline(chunkGenerator);
+        CompletableFuture<Chunk> generation;
+        if (chunkGenerator.getTemplate() != null) {
+            // Sharing the template's sections is cheaper than a hop to the generator pool
+            Chunk generated = Chunk.createGenerated(x, y, z);
+            generated.applyTemplate(chunkGenerator.getTemplate());
+            if (trackEdits) generated.trackEdits(null);
+            generation = CompletableFuture.completedFuture(putIfAbsent(generated));
         } else {
-            CompletableFuture<Chunk> future = asyncChunkGenerator.generateChunkAsync(x, y, z, chunkGenerator);
-            future.thenAccept(genChunk -> {
-                setChunk(genChunk);
-                saveChunk(genChunk);
+            generation = asyncChunkGenerator.generateChunkAsync(x, y, z, chunkGenerator).thenApply(generated -> {
+                if (trackEdits) generated.trackEdits(null);
+                return putIfAbsent(generated);
             });
-            return future;
         }
+        generation.whenComplete((generated, error) -> {
+            pendingGenerations.remove(key, created);
+            if (error != null) created.completeExceptionally(error);
+            else created.complete(generated);
+        });
+        return created;
+    }
+
+    public ChunkTicketManager getTicketManager() {
+        return ticketManager;
+    }
+
+    /** Called once per server tick from the tick thread. */
+    public void tick() {
+        tickCount++;
+        if (tickCount % UNLOAD_CHECK_INTERVAL_TICKS == 0) {
+            unloadIdleChunks();
+            demoteIdleChunks();
+        }
+    }
+
+    private void unloadIdleChunks() {
+        chunks.forEach((key, chunk) -> {
+            if (isUnloadDue(key)) unloadChunk(key, chunk);
+        });
+        // Cold chunks are always clean, so dropping them is all an unload takes
+        coldChunks.forEach((key, cold) -> {
+            if (isUnloadDue(key)) coldChunks.remove(key, cold);
+        });
+    }
+
+    private boolean isUnloadDue(long key) {
+        if (ticketManager.hasTicket(key)) {
+            idleSince.remove(key);
+            return false;
+        }
+        long[] since = idleSince.computeIfAbsent(key, k -> new long[] { tickCount });
+        if (tickCount - since[0] < UNLOAD_GRACE_TICKS) return false;
+        idleSince.remove(key);
+        return true;
+    }
+
+    // Compresses clean chunks that have not been looked up for COLD_AFTER_TICKS
+    private void demoteIdleChunks() {
+        int demoted = 0;
+        for (Chunk chunk : chunks.values()) {
+            if (demoted >= MAX_DEMOTIONS_PER_CHECK) break;
+            if (chunk.isDirty() || tickCount - chunk.getLastAccessTick() < COLD_AFTER_TICKS) continue;
+            if (demote(chunk)) demoted++;
+        }
+    }
+
+    // Under the chunk lock, so no edit lands between compressing it and retiring it;
+    // edits made through a stale reference afterwards are redirected by setBlock
+    private boolean demote(Chunk chunk) {
+        long key = key(chunk.getX(), chunk.getY(), chunk.getZ());
+        synchronized (chunk) {
+            if (chunk.isDirty()) return false;
+            CompressedChunk cold = CompressedChunk.of(chunk);
+            // Cold copy goes in first so lookups never miss both tiers
+            coldChunks.put(key, cold);
+            if (!chunks.remove(key, chunk)) {
+                coldChunks.remove(key, cold);
+                return false;
+            }
+        }
+        cacheStats.recordDemotion();
+        return true;
+    }
+
+    /** Drops a loaded chunk from memory; a dirty one is written in the background and found by lookups until then. */
+    public void unloadChunk(Chunk chunk) {
+        unloadChunk(key(chunk.getX(), chunk.getY(), chunk.getZ()), chunk);
+    }
+
+    // Under the chunk lock, so an edit either lands before the dirty check or finds the
+    // chunk retired and is redirected by setBlock
+    private void unloadChunk(long key, Chunk chunk) {
+        synchronized (chunk) {
+            if (!chunk.isDirty()) {
+                chunks.remove(key, chunk);
+                return;
+            }
+            // Pending before it leaves the hot tier so lookups always find one of them, never the older disk record
+            pendingWrites.put(key, chunk);
+            if (!chunks.remove(key, chunk)) {
+                pendingWrites.remove(key, chunk);
+                return;
+            }
+        }
+        persistence.saveAsync(chunk);
+    }
+
+    /** Forces written chunks to disk without flushing anything still dirty in memory. */
+    public void syncStorage() throws IOException {
+        storage.flush();
     }
 
     public void shutdownAsyncGenerator() {
         asyncChunkGenerator.shutdown();
     }
+
+    /** Clean-shutdown barrier: flushes every dirty chunk and closes the region files. */
+    public void close() {
+        loadExecutor.shutdown();
+        backupExecutor.shutdown();
+        try {
+            backupExecutor.awaitTermination(60, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        persistence.shutdown();
+        try {
+            journal.close();
+            storage.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 }
\ No newline at end of file
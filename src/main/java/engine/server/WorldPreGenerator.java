@@ -0,0 +1,312 @@
+package engine.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import engine.common.world.Chunk;
+
+/**
+ * Generates every chunk in a square or circle around a point and writes it straight to
+ * the region files, so players joining a fresh map never wait on generation.
+ *
+ * Chunks are requested ring by ring, nearest first, through a {@link ChunkGenerationScheduler}
+ * that keeps every generator thread busy. Each finished chunk is written and dropped from
+ * memory right away; at most {@code maxResident} chunks are requested but not yet written.
+ * Completed rings are checkpointed to a progress file in the world directory, and chunks
+ * already on disk are skipped, so an interrupted run picks up where it stopped.
+ *
+ * Usage: {@code WorldPreGenerator <worldDir> <centerX> <centerZ> <radius> [square|circle]},
+ * with the generator chosen by the same {@code voxel.generator} / {@code voxel.seed}
+ * properties as the server.
+ */
+public class WorldPreGenerator {
+    public enum Shape {
+        SQUARE,
+        CIRCLE
+    }
+
+    private static final class Result {
+        final int x, z;
+        final Chunk chunk; // null if generation failed or was cancelled
+        final boolean cancelled;
+        Result(int x, int z, Chunk chunk, boolean cancelled) {
+            this.x = x;
+            this.z = z;
+            this.chunk = chunk;
+            this.cancelled = cancelled;
+        }
+    }
+
+    private static final String PROGRESS_FILE = "pregen.progress";
+    private static final long REPORT_INTERVAL_MS = Long.getLong("voxel.pregenReportMs", 5000);
+    // Bounds how often region files are fsynced for a checkpoint
+    private static final long CHECKPOINT_INTERVAL_MS = 2000;
+
+    private final Logger logger = new Logger("PreGenerator");
+    private final World world;
+    private final Shape shape;
+    private final int centerX, centerZ, radius;
+    private final int maxResident;
+    private final ChunkGenerationScheduler scheduler;
+    private final File progressFile;
+    // Finished chunks handed back to the driving thread, which does all the writing
+    private final BlockingQueue<Result> finished = new LinkedBlockingQueue<>();
+    private volatile boolean stopped;
+
+    // Per ring: chunks inside the shape that are not written yet
+    private int[] remaining;
+    private int completedRings;
+    private long total, done, skipped, failed;
+
+    public WorldPreGenerator(World world, ChunkGenerator generator, File worldDir, Shape shape,
+            int centerX, int centerZ, int radius, int maxInFlight, int maxResident) {
+        this.world = world;
+        this.shape = shape;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+        this.maxResident = maxResident;
+        // Nearest first; nothing is out of range until the run is stopped
+        this.scheduler = new ChunkGenerationScheduler(world, generator,
+            (x, y, z) -> stopped ? Double.POSITIVE_INFINITY : Math.hypot(x - centerX, z - centerZ),
+            maxInFlight, maxResident, Double.MAX_VALUE);
+        this.progressFile = new File(worldDir, PROGRESS_FILE);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.out.println("Usage: WorldPreGenerator <worldDir> <centerX> <centerZ> <radius> [square|circle]");
+            return;
+        }
+        File worldDir = new File(args[0]);
+        Shape shape = args.length > 4 ? Shape.valueOf(args[4].toUpperCase()) : Shape.SQUARE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        ChunkGenerator generator = VoxelServer.createGenerator();
+        World world = new World(worldDir, generator);
+        WorldPreGenerator pregen = new WorldPreGenerator(world, generator, worldDir, shape,
+            Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+            Integer.getInteger("voxel.pregenMaxInFlight", threads * 2),
+            Integer.getInteger("voxel.pregenMaxResident", 1024));
+        Thread main = Thread.currentThread();
+        Thread hook = new Thread(() -> {
+            // Let in-flight chunks land and the checkpoint be written before exiting
+            pregen.stop();
+            try {
+                main.join();
+            } catch (InterruptedException ignored) {
+            }
+        }, "PreGenerator-Shutdown");
+        Runtime.getRuntime().addShutdownHook(hook);
+        try {
+            pregen.run();
+        } finally {
+            world.close();
+            world.shutdownAsyncGenerator();
+        }
+    }
+
+    /** Cancels queued work; {@link #run()} returns once the chunks already generating are written. */
+    public void stop() {
+        stopped = true;
+        scheduler.reprioritize();
+    }
+
+    /** Generates the whole area; returns true if it completed, false if stopped early. */
+    public boolean run() throws IOException {
+        countRings();
+        int startRing = readProgress();
+        for (int r = 0; r < startRing; r++) {
+            done += remaining[r];
+            skipped += remaining[r];
+            remaining[r] = 0;
+        }
+        completedRings = startRing;
+        if (startRing > 0) logger.info("Resuming at ring " + startRing + " of " + (radius + 1));
+        logger.info("Pre-generating " + total + " chunks in a " + shape.name().toLowerCase() + " of radius "
+            + radius + " around " + centerX + "," + centerZ);
+
+        long start = System.nanoTime(), lastReport = System.currentTimeMillis(), lastCheckpoint = lastReport;
+        long lastReportDone = done;
+        int outstanding = 0;
+        boolean interrupted = false;
+        int ring = startRing, index = 0;
+        while (outstanding > 0 || (ring <= radius && !stopped)) {
+            // Walk the rings in order, keeping at most maxResident chunks outstanding
+            while (ring <= radius && !stopped && outstanding < maxResident) {
+                int[] xz = ringPosition(ring, index);
+                if (++index >= (ring == 0 ? 1 : 8 * ring)) {
+                    index = 0;
+                    ring++;
+                }
+                int x = xz[0], z = xz[1];
+                if (!contains(x, z)) continue;
+                if (world.isStored(x, 0, z)) {
+                    written(x, z);
+                    skipped++;
+                    continue;
+                }
+                CompletableFuture<Chunk> future = scheduler.request(x, 0, z);
+                if (future == null) {
+                    // Cannot happen while the queue is as large as the outstanding limit; left for a rerun
+                    done++;
+                    failed++;
+                    continue;
+                }
+                outstanding++;
+                future.whenComplete((chunk, error) -> {
+                    boolean cancelled = error instanceof CancellationException;
+                    if (error != null && !cancelled) logger.error("Failed to generate chunk " + x + ",0," + z + ": " + error);
+                    finished.add(new Result(x, z, chunk, cancelled));
+                });
+            }
+            Result result;
+            try {
+                result = finished.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Still drain what is in flight; the flag is restored on the way out
+                interrupted = true;
+                stop();
+                continue;
+            }
+            if (result != null) {
+                outstanding--;
+                if (result.chunk != null) {
+                    world.unloadChunk(result.chunk);
+                    written(result.x, result.z);
+                } else if (!result.cancelled) {
+                    // Its ring never completes, so a rerun retries it
+                    done++;
+                    failed++;
+                }
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastCheckpoint >= CHECKPOINT_INTERVAL_MS) {
+                checkpoint();
+                lastCheckpoint = now;
+            }
+            if (now - lastReport >= REPORT_INTERVAL_MS) {
+                report(done - lastReportDone, now - lastReport, start);
+                lastReport = now;
+                lastReportDone = done;
+            }
+        }
+        checkpoint();
+        if (interrupted) Thread.currentThread().interrupt();
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long generated = done - skipped - failed;
+        logger.info((completedRings > radius ? "Finished: " : "Stopped: ") + generated + " chunks generated, "
+            + skipped + " already present, " + failed + " failed in " + elapsedMs / 1000 + " s ("
+            + generated * 1000 / elapsedMs + " chunks/s)");
+        if (completedRings > radius && failed == 0) progressFile.delete();
+        return completedRings > radius;
+    }
+
+    private void countRings() {
+        remaining = new int[radius + 1];
+        total = 0;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                if (!contains(centerX + dx, centerZ + dz)) continue;
+                remaining[Math.max(Math.abs(dx), Math.abs(dz))]++;
+                total++;
+            }
+        }
+    }
+
+    private boolean contains(int x, int z) {
+        int dx = x - centerX, dz = z - centerZ;
+        if (shape == Shape.CIRCLE) return (long) dx * dx + (long) dz * dz <= (long) radius * radius;
+        return Math.abs(dx) <= radius && Math.abs(dz) <= radius;
+    }
+
+    // i-th chunk on the square ring at Chebyshev distance r, walking its four sides in turn
+    private int[] ringPosition(int r, int i) {
+        if (r == 0) return new int[] { centerX, centerZ };
+        int side = i / (2 * r), offset = i % (2 * r);
+        switch (side) {
+            case 0: return new int[] { centerX - r + offset, centerZ - r };
+            case 1: return new int[] { centerX + r, centerZ - r + offset };
+            case 2: return new int[] { centerX + r - offset, centerZ + r };
+            default: return new int[] { centerX - r, centerZ + r - offset };
+        }
+    }
+
+    private void written(int x, int z) {
+        done++;
+        remaining[Math.max(Math.abs(x - centerX), Math.abs(z - centerZ))]--;
+        while (completedRings <= radius && remaining[completedRings] == 0) completedRings++;
+    }
+
+    // Rings before completedRings are all written; make that durable before recording it
+    private void checkpoint() {
+        try {
+            world.syncStorage();
+            writeProgress();
+        } catch (IOException e) {
+            logger.error("Failed to checkpoint pre-generation progress: " + e);
+        }
+    }
+
+    private void report(long chunks, long intervalMs, long startNanos) {
+        double rate = chunks * 1000.0 / Math.max(1, intervalMs);
+        long left = total - done;
+        Runtime rt = Runtime.getRuntime();
+        long usedMb = (rt.totalMemory() - rt.freeMemory()) >> 20;
+        logger.info(String.format("%d/%d chunks (%.1f%%), %.0f chunks/s, ETA %s, ring %d/%d, %d queued, %d running, "
+                + "%d resident, heap %d/%d MB, elapsed %d s",
+            done, total, done * 100.0 / Math.max(1, total), rate, rate > 0 ? formatDuration((long) (left / rate)) : "?",
+            completedRings, radius + 1, scheduler.getQueuedCount(), scheduler.getRunningCount(),
+            world.getHotChunkCount(), usedMb, rt.maxMemory() >> 20,
+            (System.nanoTime() - startNanos) / 1_000_000_000L));
+    }
+
+    private static String formatDuration(long seconds) {
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    // Returns the first ring still to do, or 0 if there is no progress for this exact job
+    private int readProgress() {
+        if (!progressFile.exists()) return 0;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(progressFile))) {
+            String savedShape = in.readUTF();
+            int x = in.readInt(), z = in.readInt(), r = in.readInt(), rings = in.readInt();
+            if (savedShape.equals(shape.name()) && x == centerX && z == centerZ && r == radius) return rings;
+            logger.warn("Ignoring progress of a different job (" + savedShape.toLowerCase() + " radius " + r
+                + " around " + x + "," + z + "); chunks already on disk are still skipped");
+        } catch (IOException e) {
+            logger.warn("Unreadable " + PROGRESS_FILE + ", starting over: " + e);
+        }
+        return 0;
+    }
+
+    private void writeProgress() throws IOException {
+        File tmp = new File(progressFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp); DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeUTF(shape.name());
+            out.writeInt(centerX);
+            out.writeInt(centerZ);
+            out.writeInt(radius);
+            out.writeInt(completedRings);
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(progressFile)) {
+            progressFile.delete();
+            if (!tmp.renameTo(progressFile)) throw new IOException("Cannot replace " + progressFile);
+        }
+    }
+
+    public long getTotalCount() { return total; }
+    public long getDoneCount() { return done; }
+    public long getSkippedCount() { return skipped; }
+    public long getFailedCount() { return failed; }
+}
@@ -0,0 +1,132 @@
+package engine.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import engine.common.util.Long2ObjectHashMap;
+import engine.common.util.LongHashSet;
+import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
+import engine.common.world.ChunkSection;
+import engine.server.storage.RegionStorage;
+
+/**
+ * Point-in-time view of a world, taken by {@link World#snapshot()}.
+ *
+ * Loaded chunks are captured with {@link Chunk#snapshot()}, so they share sections with
+ * the live chunks until those are written to. Cold chunks are immutable and referenced
+ * as they are. Chunks that were only on disk are copied from the region files lazily;
+ * if the world is about to overwrite one first, its old record is preserved in memory.
+ */
+public class WorldSnapshot {
+    private final World world;
+    private final RegionStorage source;
+    private final ChunkRecordCodec codec;
+    private final List<Chunk> chunks;
+    private final List<CompressedChunk> coldChunks;
+    // Stored chunks not yet copied; guarded by this
+    private final LongHashSet pendingRecords;
+    private final Long2ObjectHashMap<byte[]> preservedRecords = new Long2ObjectHashMap<>();
+    private long preservedBytes;
+    private final int storedChunkCount;
+    private final long creationNanos;
+
+    WorldSnapshot(World world, RegionStorage source, ChunkRecordCodec codec, List<Chunk> chunks,
+            List<CompressedChunk> coldChunks, LongHashSet pendingRecords, long creationNanos) {
+        this.world = world;
+        this.source = source;
+        this.codec = codec;
+        this.chunks = chunks;
+        this.coldChunks = coldChunks;
+        this.pendingRecords = pendingRecords;
+        this.storedChunkCount = pendingRecords.size();
+        this.creationNanos = creationNanos;
+    }
+
+    /** Called before the world overwrites a stored chunk, so the snapshot keeps the old record. */
+    synchronized void preserve(long key) throws IOException {
+        if (!pendingRecords.remove(key)) return;
+        byte[] record = source.readRecord(ChunkPos.getX(key), ChunkPos.getY(key), ChunkPos.getZ(key));
+        if (record == null) return;
+        preservedRecords.put(key, record);
+        preservedBytes += record.length;
+    }
+
+    private synchronized byte[] takeRecord(long key) throws IOException {
+        byte[] record = preservedRecords.remove(key);
+        if (record != null) {
+            preservedBytes -= record.length;
+            return record;
+        }
+        if (!pendingRecords.remove(key)) return null;
+        return source.readRecord(ChunkPos.getX(key), ChunkPos.getY(key), ChunkPos.getZ(key));
+    }
+
+    /** Writes the snapshot as a standalone world directory. Safe to run while the world keeps ticking. */
+    public void writeTo(File dir) throws IOException {
+        RegionStorage out = new RegionStorage(dir);
+        try {
+            for (Chunk chunk : chunks) {
+                out.writePayload(chunk.getX(), chunk.getY(), chunk.getZ(), codec.encode(chunk));
+            }
+            for (CompressedChunk cold : coldChunks) {
+                out.writePayload(cold.getX(), cold.getY(), cold.getZ(), codec.encode(cold.inflate()));
+            }
+            long[] keys;
+            synchronized (this) {
+                keys = pendingRecords.toArray();
+                long[] preserved = preservedRecords.keys();
+                long[] all = new long[keys.length + preserved.length];
+                System.arraycopy(keys, 0, all, 0, keys.length);
+                System.arraycopy(preserved, 0, all, keys.length, preserved.length);
+                keys = all;
+            }
+            for (long key : keys) {
+                byte[] record = takeRecord(key);
+                if (record != null) out.writeRecord(ChunkPos.getX(key), ChunkPos.getY(key), ChunkPos.getZ(key), record);
+            }
+        } finally {
+            out.close();
+        }
+        File generatorFile = new File(source.getDirectory(), ChunkRecordCodec.GENERATOR_FILE);
+        if (generatorFile.exists()) {
+            Files.copy(generatorFile.toPath(), new File(dir, ChunkRecordCodec.GENERATOR_FILE).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Heap held only because of this snapshot: chunk copies, sections the live world has
+     * since replaced, cold chunks it no longer holds, and preserved disk records.
+     */
+    public long estimateExtraMemory() {
+        long bytes = 0;
+        for (Chunk chunk : chunks) {
+            bytes += 64 + 16 + 8L * Chunk.SECTIONS;
+            Chunk live = world.chunks.get(ChunkPos.of(chunk));
+            for (int s = 0; s < Chunk.SECTIONS; s++) {
+                ChunkSection section = chunk.getSection(s);
+                if (section != null && (live == null || live.getSection(s) != section)) bytes += section.estimateMemoryUsage();
+            }
+        }
+        for (CompressedChunk cold : coldChunks) {
+            if (world.getColdChunk(ChunkPos.pack(cold.getX(), cold.getY(), cold.getZ())) != cold) {
+                bytes += 48 + 16 + cold.getPayload().length;
+            }
+        }
+        synchronized (this) {
+            bytes += preservedBytes;
+        }
+        return bytes;
+    }
+
+    /** Time the world was frozen to take the snapshot. */
+    public long getCreationNanos() { return creationNanos; }
+    public int getLoadedChunkCount() { return chunks.size(); }
+    public int getColdChunkCount() { return coldChunks.size(); }
+    /** Chunks that were only on disk when the snapshot was taken. */
+    public int getStoredChunkCount() { return storedChunkCount; }
+}
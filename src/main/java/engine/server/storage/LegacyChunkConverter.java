@@ -0,0 +1,66 @@
+package engine.server.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import engine.common.world.Chunk;
+import engine.server.Logger;
+
+/**
+ * Moves one-file-per-chunk worlds (chunk_X_Y_Z.bin) into region files.
+ * Each .bin file is deleted only after its chunk has been written to its region.
+ */
+public class LegacyChunkConverter {
+    private static final Logger logger = new Logger("LegacyChunkConverter");
+
+    public static boolean hasLegacyChunks(File worldDir) {
+        File[] files = listLegacy(worldDir);
+        return files != null && files.length > 0;
+    }
+
+    /** Converts every legacy chunk file in {@code worldDir}; returns the number converted. */
+    public static int convert(File worldDir, RegionStorage storage) throws IOException {
+        File[] files = listLegacy(worldDir);
+        if (files == null || files.length == 0) return 0;
+        logger.info("Converting " + files.length + " legacy chunk files in " + worldDir);
+        long start = System.currentTimeMillis();
+        List<File> done = new ArrayList<>(files.length);
+        for (File f : files) {
+            Chunk chunk;
+            try {
+                chunk = Chunk.load(f);
+            } catch (IOException e) {
+                logger.error("Skipping unreadable chunk file " + f.getName() + ": " + e.getMessage());
+                continue;
+            }
+            storage.write(chunk);
+            done.add(f);
+            if (done.size() % 1000 == 0) {
+                logger.info("Converted " + done.size() + "/" + files.length + " chunks");
+            }
+        }
+        // Only remove the originals once the region data is durable
+        storage.flush();
+        for (File f : done) {
+            if (!f.delete()) logger.warn("Could not delete " + f.getName());
+        }
+        logger.info("Converted " + done.size() + " chunks in " + (System.currentTimeMillis() - start) + " ms");
+        return done.size();
+    }
+
+    private static File[] listLegacy(File worldDir) {
+        return worldDir.listFiles((dir, name) -> name.startsWith("chunk_") && name.endsWith(".bin"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        File worldDir = new File(args.length > 0 ? args[0] : "serverworld");
+        RegionStorage storage = new RegionStorage(worldDir);
+        try {
+            convert(worldDir, storage);
+        } finally {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package engine.server.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import engine.common.network.CompressionCodec;
+
+/**
+ * One region file holding up to 32x32 chunks of a single chunk-Y layer.
+ *
+ * Layout: sector 0 is a header of 1024 big-endian ints, one per chunk, each packing
+ * (first sector << 8 | sector count); 0 means absent. Chunk records start on a
+ * sector boundary: int payload length, byte compression type, payload.
+ * An empty payload takes no sectors and is recorded as {@link #EMPTY_RECORD} in the header.
+ * The chunk codec uses it for chunks that are exactly their generator output.
+ * All access goes through positional FileChannel reads and writes.
+ */
+public class RegionFile {
+    public static final int CHUNKS = 32;
+    public static final int SECTOR_SIZE = 4096;
+    private static final int HEADER_SECTORS = 1;
+    private static final int MAX_SECTORS_PER_CHUNK = 255;
+    // Sector 0 is the header, so no real record can start there
+    static final int EMPTY_RECORD = 0xFF;
+
+    static final byte COMPRESSION_NONE = 0;
+    static final byte COMPRESSION_DEFLATE = 1;
+
+    private final File file;
+    private final int[] locations = new int[CHUNKS * CHUNKS];
+    private final BitSet usedSectors = new BitSet();
+    private FileChannel channel;
+    private boolean closed;
+    // Reads and writes in progress through RegionStorage; guarded by its region cache
+    int pins;
+
+    public RegionFile(File file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        usedSectors.clear();
+        usedSectors.set(0, HEADER_SECTORS);
+        if (channel.size() < HEADER_SECTORS * SECTOR_SIZE) {
+            // New file: write an empty header
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE);
+            writeFully(header, 0);
+            Arrays.fill(locations, 0);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(CHUNKS * CHUNKS * 4);
+        readFully(header, 0);
+        header.flip();
+        for (int i = 0; i < locations.length; i++) {
+            int location = header.getInt();
+            locations[i] = location;
+            if (location != 0 && location != EMPTY_RECORD) usedSectors.set(location >>> 8, (location >>> 8) + (location & 0xFF));
+        }
+    }
+
+    // Never reopens: a second instance on the same file would keep its own sector map and overwrite this one's
+    private void ensureOpen() throws IOException {
+        if (closed || !channel.isOpen()) throw new IOException("Region file is closed: " + file);
+    }
+
+    public File getFile() { return file; }
+
+    public static int index(int chunkX, int chunkZ) {
+        return (chunkX & (CHUNKS - 1)) + (chunkZ & (CHUNKS - 1)) * CHUNKS;
+    }
+
+    public synchronized boolean contains(int index) throws IOException {
+        ensureOpen();
+        return locations[index] != 0;
+    }
+
+    /** Indices of all chunks present in this region. */
+    public synchronized int[] indices() {
+        int count = 0;
+        for (int location : locations) if (location != 0) count++;
+        int[] out = new int[count];
+        int n = 0;
+        for (int i = 0; i < locations.length; i++) if (locations[i] != 0) out[n++] = i;
+        return out;
+    }
+
+    /** Returns the decompressed payload stored for {@code index}, or null if absent. */
+    public byte[] read(int index) throws IOException {
+        byte[] stored = readRaw(index);
+        if (stored == null) return null;
+        if (stored.length == 0) return stored;
+        byte type = stored[0];
+        if (type == COMPRESSION_NONE) return Arrays.copyOfRange(stored, 1, stored.length);
+        if (type != COMPRESSION_DEFLATE) throw new IOException("Unknown compression type " + type + " in " + file);
+        try {
+            return CompressionCodec.getStorage().decompress(stored, 1, stored.length - 1);
+        } catch (Exception e) {
+            throw new IOException("Corrupt chunk " + index + " in " + file, e);
+        }
+    }
+
+    /** Reads the stored record (compression byte followed by payload) without decoding it. */
+    synchronized byte[] readRaw(int index) throws IOException {
+        ensureOpen();
+        int location = locations[index];
+        if (location == 0) return null;
+        if (location == EMPTY_RECORD) return new byte[0];
+        long position = (long) (location >>> 8) * SECTOR_SIZE;
+        ByteBuffer lengthBuf = ByteBuffer.allocate(4);
+        readFully(lengthBuf, position);
+        lengthBuf.flip();
+        int length = lengthBuf.getInt();
+        if (length <= 0 || length > (location & 0xFF) * SECTOR_SIZE - 4) {
+            throw new IOException("Bad chunk length " + length + " at index " + index + " in " + file);
+        }
+        ByteBuffer data = ByteBuffer.allocate(length);
+        readFully(data, position + 4);
+        return data.array();
+    }
+
+    public void write(int index, byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            writeRaw(index, payload);
+            return;
+        }
+        byte[] compressed = CompressionCodec.getStorage().compress(payload);
+        byte[] record = new byte[compressed.length + 1];
+        record[0] = COMPRESSION_DEFLATE;
+        System.arraycopy(compressed, 0, record, 1, compressed.length);
+        writeRaw(index, record);
+    }
+
+    /** Stores an already encoded record (compression byte followed by payload). */
+    synchronized void writeRaw(int index, byte[] record) throws IOException {
+        ensureOpen();
+        if (record.length == 0) {
+            delete(index);
+            setLocation(index, EMPTY_RECORD);
+            return;
+        }
+        int sectorsNeeded = (record.length + 4 + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        if (sectorsNeeded > MAX_SECTORS_PER_CHUNK) {
+            throw new IOException("Chunk record too large: " + record.length + " bytes");
+        }
+        int location = locations[index];
+        if (location == EMPTY_RECORD) location = 0;
+        int sector = location >>> 8, count = location & 0xFF;
+        if (location == 0 || sectorsNeeded > count) {
+            // Release the old run first so it can be reused if it is part of a larger free gap
+            if (location != 0) usedSectors.clear(sector, sector + count);
+            sector = allocate(sectorsNeeded);
+        } else if (sectorsNeeded < count) {
+            usedSectors.clear(sector + sectorsNeeded, sector + count);
+        }
+        usedSectors.set(sector, sector + sectorsNeeded);
+
+        ByteBuffer buf = ByteBuffer.allocate(sectorsNeeded * SECTOR_SIZE);
+        buf.putInt(record.length);
+        buf.put(record);
+        buf.rewind();
+        writeFully(buf, (long) sector * SECTOR_SIZE);
+        setLocation(index, sector << 8 | sectorsNeeded);
+    }
+
+    public synchronized void delete(int index) throws IOException {
+        ensureOpen();
+        int location = locations[index];
+        if (location == 0) return;
+        if (location != EMPTY_RECORD) usedSectors.clear(location >>> 8, (location >>> 8) + (location & 0xFF));
+        setLocation(index, 0);
+    }
+
+    // First-fit search for a run of free sectors; falls through to the end of the file
+    private int allocate(int sectors) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (true) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end - start >= sectors) return start;
+            start = usedSectors.nextClearBit(end);
+        }
+    }
+
+    private void setLocation(int index, int location) throws IOException {
+        locations[index] = location;
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        buf.putInt(location);
+        buf.flip();
+        writeFully(buf, (long) index * 4);
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0) throw new IOException("Unexpected end of " + file);
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf, position + buf.position());
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        if (!closed) channel.force(false);
+    }
+
+    /** Closes the file for good; any later access throws. */
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package engine.server.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.common.util.LongHashSet;
+import engine.common.world.Chunk;
+import engine.common.world.ChunkPos;
+import engine.server.Logger;
+
+/**
+ * Chunk persistence on top of {@link RegionFile}s, named r.&lt;regionX&gt;.&lt;chunkY&gt;.&lt;regionZ&gt;.region.
+ * Keeps a bounded set of region files open. Every read and write pins its region for the
+ * duration, and only unpinned regions are evicted, so there is never more than one open
+ * {@link RegionFile} per file; an evicted instance is closed for good and a later access
+ * opens a fresh one.
+ */
+public class RegionStorage {
+    private static final String PREFIX = "r.";
+    private static final String SUFFIX = ".region";
+    private static final int MAX_OPEN_REGIONS = 64;
+    private static final Logger logger = new Logger("RegionStorage");
+
+    private final File dir;
+    // Keys of every chunk present on disk, so misses never touch the file system
+    private final LongHashSet index = new LongHashSet(4096);
+    // Access-ordered so the least recently used region is closed first; pin counts are guarded by it too
+    private final Map<Long, RegionFile> openRegions = new LinkedHashMap<>(16, 0.75f, true);
+
+    @FunctionalInterface
+    private interface RegionIO<T> {
+        T apply(RegionFile region) throws IOException;
+    }
+
+    public RegionStorage(File dir) {
+        this.dir = dir;
+        if (!dir.exists()) dir.mkdirs();
+    }
+
+    /** Reads every region header once and fills the in-memory index of stored chunks. */
+    public void buildIndex() throws IOException {
+        index.clear();
+        for (long key : listChunks()) index.add(key);
+    }
+
+    /** Index lookup only; valid after {@link #buildIndex()}. */
+    public boolean isStored(int x, int y, int z) {
+        return index.contains(ChunkPos.pack(x, y, z));
+    }
+
+    public int getStoredCount() {
+        return index.size();
+    }
+
+    public File getDirectory() { return dir; }
+
+    // Runs io against the cached region holding the chunk, pinned so it cannot be evicted meanwhile;
+    // returns null without calling io if the region file does not exist and create is false
+    private <T> T withRegion(int chunkX, int chunkY, int chunkZ, boolean create, RegionIO<T> io) throws IOException {
+        RegionFile region = acquire(chunkX, chunkY, chunkZ, create);
+        if (region == null) return null;
+        try {
+            return io.apply(region);
+        } finally {
+            release(region);
+        }
+    }
+
+    private RegionFile acquire(int chunkX, int chunkY, int chunkZ, boolean create) throws IOException {
+        int rx = chunkX >> 5, rz = chunkZ >> 5;
+        long key = ChunkPos.pack(rx, chunkY, rz);
+        synchronized (openRegions) {
+            RegionFile region = openRegions.get(key);
+            if (region == null) {
+                File file = new File(dir, PREFIX + rx + "." + chunkY + "." + rz + SUFFIX);
+                if (!create && !file.exists()) return null;
+                region = new RegionFile(file);
+                openRegions.put(key, region);
+            }
+            region.pins++;
+            evictIdle();
+            return region;
+        }
+    }
+
+    private void release(RegionFile region) {
+        synchronized (openRegions) {
+            region.pins--;
+            evictIdle();
+        }
+    }
+
+    // Closes least recently used unpinned regions until the cache is within bounds; may stay over while all are in use
+    private void evictIdle() {
+        Iterator<RegionFile> it = openRegions.values().iterator();
+        while (openRegions.size() > MAX_OPEN_REGIONS && it.hasNext()) {
+            RegionFile region = it.next();
+            if (region.pins > 0) continue;
+            it.remove();
+            try {
+                region.close();
+            } catch (IOException e) {
+                logger.error("Failed to close evicted region " + region.getFile() + ": " + e);
+            }
+        }
+    }
+
+    public boolean exists(int x, int y, int z) throws IOException {
+        Boolean present = withRegion(x, y, z, false, region -> region.contains(RegionFile.index(x, z)));
+        return present != null && present;
+    }
+
+    /**
+     * Loads a chunk stored in full, or returns null if it has never been saved.
+     * Generator-relative records must be decoded from {@link #readPayload} instead.
+     */
+    public Chunk read(int x, int y, int z) throws IOException {
+        byte[] data = readPayload(x, y, z);
+        return data == null ? null : Chunk.fromSections(x, y, z, data);
+    }
+
+    /** Returns the decompressed stored payload for a chunk, or null if absent. */
+    public byte[] readPayload(int x, int y, int z) throws IOException {
+        return withRegion(x, y, z, false, region -> region.read(RegionFile.index(x, z)));
+    }
+
+    /** Returns the stored record (compression byte and payload) without decoding it, or null if absent. */
+    public byte[] readRecord(int x, int y, int z) throws IOException {
+        return withRegion(x, y, z, false, region -> region.readRaw(RegionFile.index(x, z)));
+    }
+
+    /** Stores a record obtained from {@link #readRecord}, e.g. when copying between storages. */
+    public void writeRecord(int x, int y, int z, byte[] record) throws IOException {
+        withRegion(x, y, z, true, region -> {
+            region.writeRaw(RegionFile.index(x, z), record);
+            return null;
+        });
+        index.add(ChunkPos.pack(x, y, z));
+    }
+
+    /** Keys of every stored chunk, from the index. */
+    public long[] getStoredKeys() {
+        return index.toArray();
+    }
+
+    public void write(Chunk chunk) throws IOException {
+        writePayload(chunk.getX(), chunk.getY(), chunk.getZ(), chunk.encodeSections());
+    }
+
+    public void writePayload(int x, int y, int z, byte[] payload) throws IOException {
+        withRegion(x, y, z, true, region -> {
+            region.write(RegionFile.index(x, z), payload);
+            return null;
+        });
+        index.add(ChunkPos.pack(x, y, z));
+    }
+
+    public void delete(int x, int y, int z) throws IOException {
+        withRegion(x, y, z, false, region -> {
+            region.delete(RegionFile.index(x, z));
+            return null;
+        });
+        index.remove(ChunkPos.pack(x, y, z));
+    }
+
+    /** Packed {@link ChunkPos} keys of every chunk stored in this directory. */
+    public long[] listChunks() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) return new long[0];
+        List<long[]> perRegion = new ArrayList<>();
+        int total = 0;
+        for (File f : files) {
+            String[] parts = f.getName().substring(PREFIX.length(), f.getName().length() - SUFFIX.length()).split("\\.");
+            if (parts.length != 3) continue;
+            int rx, cy, rz;
+            try {
+                rx = Integer.parseInt(parts[0]);
+                cy = Integer.parseInt(parts[1]);
+                rz = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            int[] indices = headerIndices(f, ChunkPos.pack(rx, cy, rz));
+            long[] keys = new long[indices.length];
+            for (int i = 0; i < indices.length; i++) {
+                int lx = indices[i] % RegionFile.CHUNKS, lz = indices[i] / RegionFile.CHUNKS;
+                keys[i] = ChunkPos.pack((rx << 5) + lx, cy, (rz << 5) + lz);
+            }
+            perRegion.add(keys);
+            total += keys.length;
+        }
+        long[] out = new long[total];
+        int n = 0;
+        for (long[] keys : perRegion) {
+            System.arraycopy(keys, 0, out, n, keys.length);
+            n += keys.length;
+        }
+        return out;
+    }
+
+    // Uses the cached region if open; otherwise reads the header without evicting anything
+    private int[] headerIndices(File file, long key) throws IOException {
+        synchronized (openRegions) {
+            RegionFile open = openRegions.get(key);
+            if (open != null) return open.indices();
+        }
+        RegionFile region = new RegionFile(file);
+        try {
+            return region.indices();
+        } finally {
+            region.close();
+        }
+    }
+
+    public void flush() throws IOException {
+        synchronized (openRegions) {
+            for (RegionFile region : openRegions.values()) region.flush();
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (openRegions) {
+            Iterator<RegionFile> it = openRegions.values().iterator();
+            while (it.hasNext()) {
+                RegionFile region = it.next();
+                region.flush();
+                region.close();
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package engine.common.world;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link TerrainKernels} on {@code jdk.incubator.vector}, eight columns per operation.
+ * Only built by the {@code vector} profile; loaded reflectively by {@link TerrainKernels#get()}.
+ * Integer math matches the scalar code exactly.
+ *
+ * {@link #columnHeights} stays scalar: its double-to-int conversion is not intrinsified on
+ * JDK 17 and the vector version measured several times slower (see TerrainKernelBenchmark).
+ */
+public class VectorTerrainKernels extends TerrainKernels {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+
+    public VectorTerrainKernels() {
+        // Fail here rather than mid-generation if the species cannot be used
+        IntVector.zero(INTS);
+    }
+
+    @Override
+    public String getName() {
+        return "vector/" + INTS.vectorBitSize();
+    }
+
+    @Override
+    public void fillLayer(int[] heights, byte[] surface, int worldY, int seaLevel, byte[] out, int offset) {
+        byte above = worldY <= seaLevel ? WATER : AIR;
+        IntVector aboveV = IntVector.broadcast(INTS, above);
+        IntVector dirtV = IntVector.broadcast(INTS, DIRT);
+        IntVector stoneV = IntVector.broadcast(INTS, STONE);
+        for (int i = 0; i < COLUMNS; i += INTS.length()) {
+            IntVector h = IntVector.fromArray(INTS, heights, i);
+            IntVector top = (IntVector) ByteVector.fromArray(BYTES, surface, i).convertShape(VectorOperators.B2I, INTS, 0);
+            // Scalar branch order reversed: each later blend overrides the earlier ones
+            VectorMask<Integer> dirt = h.sub(3).lt(worldY);
+            VectorMask<Integer> surfaceMask = h.eq(worldY);
+            VectorMask<Integer> air = h.lt(worldY);
+            IntVector id = stoneV.blend(dirtV, dirt).blend(top, surfaceMask).blend(aboveV, air);
+            ((ByteVector) id.convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(out, offset + i);
+        }
+    }
+}